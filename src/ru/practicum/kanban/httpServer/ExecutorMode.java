@@ -0,0 +1,23 @@
+package ru.practicum.kanban.httpServer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Defines which threads handle the requests of HttpTaskServer.
+public enum ExecutorMode {
+    // All requests are handled one by one on the server's dispatcher thread.
+    SINGLE_THREAD,
+    // Requests are handled by a fixed pool with one thread per available processor.
+    FIXED_POOL,
+    // Every request is handled by its own virtual thread.
+    VIRTUAL_THREADS;
+
+    // Returns the executor for this mode, or null if the dispatcher thread handles the requests.
+    ExecutorService createExecutor() {
+        return switch (this) {
+            case SINGLE_THREAD -> null;
+            case FIXED_POOL -> Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+    }
+}
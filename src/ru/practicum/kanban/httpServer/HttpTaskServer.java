@@ -1,6 +1,7 @@
 package ru.practicum.kanban.httpServer;
 
 import com.sun.net.httpserver.HttpServer;
+import ru.practicum.kanban.httpServer.handlers.BaseHttpHandler;
 import ru.practicum.kanban.httpServer.handlers.HistoryHandler;
 import ru.practicum.kanban.httpServer.handlers.PrioritizedTaskHandler;
 import ru.practicum.kanban.httpServer.handlers.TaskHandler;
@@ -8,30 +9,99 @@ import ru.practicum.kanban.model.Epic;
 import ru.practicum.kanban.model.SubTask;
 import ru.practicum.kanban.model.Task;
 import ru.practicum.kanban.model.enums.TaskType;
+import ru.practicum.kanban.service.FileBackedTaskManager;
+import ru.practicum.kanban.service.HistoryManager;
 import ru.practicum.kanban.service.Managers;
+import ru.practicum.kanban.service.PersistenceMode;
 import ru.practicum.kanban.service.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 public class HttpTaskServer {
-    private static final int PORT = 8080;
+    public static final int DEFAULT_PORT = 8080;
+    // Bounds of the history of every client, see PartitionedHistoryManager.
+    private static final int HISTORY_SIZE = 100;
+    private static final Duration HISTORY_MAX_AGE = Duration.ofDays(1);
+    private static final int MAX_HISTORY_CLIENTS = 1000;
     private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final int port;
+    private final ResponseCache responseCache = new ResponseCache();
+    private final List<BaseHttpHandler> handlers = new ArrayList<>();
 
     public HttpTaskServer(TaskManager manager) throws IOException {
-        httpServer = HttpServer.create(new InetSocketAddress(PORT),0);
-        httpServer.createContext("/tasks", new TaskHandler(manager, TaskType.TASK));
-        httpServer.createContext("/epics", new TaskHandler(manager, TaskType.EPIC));
-        httpServer.createContext("/subtasks", new TaskHandler(manager, TaskType.SUBTASK));
-        httpServer.createContext("/prioritized", new PrioritizedTaskHandler(manager));
-        httpServer.createContext("/history", new HistoryHandler(manager));
+        this(manager, DEFAULT_PORT, 0, ExecutorMode.SINGLE_THREAD);
     }
 
+    // backlog is the maximum number of queued incoming connections; 0 means the system default.
+    // With any mode other than SINGLE_THREAD the manager must be thread-safe (see Managers.getConcurrent()).
+    public HttpTaskServer(TaskManager manager, int port, int backlog, ExecutorMode executorMode) throws IOException {
+        if (executorMode != ExecutorMode.SINGLE_THREAD && !manager.isThreadSafe()) {
+            throw new IllegalArgumentException("Executor mode " + executorMode
+                    + " requires a thread-safe task manager, see Managers.getConcurrent()");
+        }
+        this.port = port;
+        httpServer = HttpServer.create(new InetSocketAddress(port), backlog);
+        executor = executorMode.createExecutor();
+        httpServer.setExecutor(executor);
+        createContext("/tasks", new TaskHandler(manager, TaskType.TASK, responseCache));
+        createContext("/epics", new TaskHandler(manager, TaskType.EPIC, responseCache));
+        createContext("/subtasks", new TaskHandler(manager, TaskType.SUBTASK, responseCache));
+        createContext("/prioritized", new PrioritizedTaskHandler(manager, responseCache));
+        createContext("/history", new HistoryHandler(manager, responseCache));
+    }
+
+    private void createContext(String path, BaseHttpHandler handler) {
+        httpServer.createContext(path, handler);
+        handlers.add(handler);
+    }
+
+    // Responses of at least this many bytes are gzip- or deflate-compressed for clients that accept it
+    // (BaseHttpHandler.DEFAULT_COMPRESSION_THRESHOLD by default); Integer.MAX_VALUE disables compression.
+    public void setCompressionThreshold(int compressionThreshold) {
+        for (BaseHttpHandler handler : handlers) {
+            handler.setCompressionThreshold(compressionThreshold);
+        }
+    }
+
+    // Hit and miss counters of the cached collection responses.
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    // Optional arguments: port, executor mode and the file to keep the tasks in, e.g. "8080 VIRTUAL_THREADS tasks.csv".
+    // Without a file the tasks are kept in memory and the board starts with sample tasks.
     public static void main(String[] args) throws Exception {
-        TaskManager taskManager = Managers.getDefault();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        ExecutorMode executorMode = args.length > 1 ? ExecutorMode.valueOf(args[1]) : ExecutorMode.SINGLE_THREAD;
+        HistoryManager history = Managers.getPartitionedHistory(HISTORY_SIZE, HISTORY_MAX_AGE, MAX_HISTORY_CLIENTS);
+        boolean singleThread = executorMode == ExecutorMode.SINGLE_THREAD;
+        TaskManager taskManager;
+        if (args.length > 2) {
+            Path file = Path.of(args[2]);
+            taskManager = singleThread
+                    ? Managers.getDefault(file, PersistenceMode.JOURNAL, history)
+                    : Managers.getConcurrent(file, PersistenceMode.JOURNAL, history);
+            FileBackedTaskManager fileBackedManager = (FileBackedTaskManager) taskManager;
+            Runtime.getRuntime().addShutdownHook(new Thread(fileBackedManager::close));
+        } else {
+            taskManager = singleThread ? Managers.getDefault(history) : Managers.getConcurrent(history);
+            addSampleTasks(taskManager);
+        }
 
+        HttpTaskServer server = new HttpTaskServer(taskManager, port, 0, executorMode);
+        server.start();
+        System.out.println(taskManager.getAllTasks());
+    }
+
+    private static void addSampleTasks(TaskManager taskManager) {
         Task task1 = new Task(
                 "Task name",
                 "Task description",
@@ -62,19 +132,18 @@ public class HttpTaskServer {
         taskManager.addTask(task2);
         taskManager.addTask(subTask1);
         taskManager.addTask(subTask2);
-
-        HttpTaskServer server = new HttpTaskServer(taskManager);
-        server.start();
-        System.out.println(taskManager.getAllTasks());
     }
 
     public void start() {
         httpServer.start();
-        System.out.println("Server started on port " + PORT);
+        System.out.println("Server started on port " + port);
     }
 
     public void stop() {
         httpServer.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
         System.out.println("Server stopped");
     }
 }
@@ -0,0 +1,33 @@
+package ru.practicum.kanban.httpServer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import ru.practicum.kanban.httpServer.adapters.DurationAdapter;
+import ru.practicum.kanban.httpServer.adapters.LocalDateTimeAdapter;
+import ru.practicum.kanban.httpServer.adapters.TaskAdapter;
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// The Gson instance shared by all handlers. Gson is thread-safe and caches its adapters,
+// so it is built once instead of per handler. Tasks are encoded and decoded by TaskAdapter without reflection.
+public final class JsonCodec {
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(Task.class, TaskAdapter.forTask())
+            .registerTypeAdapter(Epic.class, TaskAdapter.forEpic())
+            .registerTypeAdapter(SubTask.class, TaskAdapter.forSubTask())
+            .setPrettyPrinting()
+            .create();
+
+    private JsonCodec() {
+    }
+
+    public static Gson getGson() {
+        return GSON;
+    }
+}
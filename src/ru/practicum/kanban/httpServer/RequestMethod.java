@@ -5,5 +5,7 @@ public enum RequestMethod {
     GET_BY_ID,
     GET_SUBTASKS_BY_EPIC_ID,
     ADD_TASK,
-    DELETE_BY_ID
+    ADD_BATCH,
+    DELETE_BY_ID,
+    DELETE_TASKS
 }
@@ -0,0 +1,44 @@
+package ru.practicum.kanban.httpServer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache of encoded response bodies of the read endpoints.
+// Every body is stored with the version of the endpoint's collection it was encoded for
+// (see TaskManager.getVersion(TaskType)), so a body becomes stale as soon as the collection is modified
+// and is never served after that.
+public class ResponseCache {
+    private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    // Returns the response cached for the endpoint at this version, or null if there is none.
+    public CachedResponse get(String endpoint, long version) {
+        CachedResponse response = responses.get(endpoint);
+        if (response != null && response.version == version) {
+            hitCount.incrementAndGet();
+            return response;
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    // Caches the body encoded for the endpoint at this version, unless a newer one is already cached.
+    // contentEncoding is the compression applied to the body, or null.
+    public void put(String endpoint, long version, byte[] body, String contentEncoding) {
+        responses.merge(endpoint, new CachedResponse(version, body, contentEncoding),
+                (cached, encoded) -> cached.version > encoded.version ? cached : encoded);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public record CachedResponse(long version, byte[] body, String contentEncoding) {
+    }
+}
@@ -0,0 +1,212 @@
+package ru.practicum.kanban.httpServer.adapters;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+import ru.practicum.kanban.model.enums.TaskType;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Hand-written JSON adapter for Task, Epic and SubTask, reading and writing the fields through
+// constructors and getters instead of reflection.
+// The adapter for Task.class is polymorphic: like RuntimeTypeAdapterFactory, it writes the "type" discriminator
+// first and requires it when reading. The adapters for Epic.class and SubTask.class are used for values of these
+// runtime types and, like Gson's reflective adapter, write no discriminator.
+// Fields are written in the order of the reflective adapter (the subclass's own fields first) and nulls are omitted,
+// so the output is the same as before.
+public class TaskAdapter<T extends Task> extends TypeAdapter<T> {
+    private static final String TYPE_FIELD = "type";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final Class<T> taskClass;
+    private final TaskType taskType;
+
+    private TaskAdapter(Class<T> taskClass, TaskType taskType) {
+        this.taskClass = taskClass;
+        this.taskType = taskType;
+    }
+
+    public static TaskAdapter<Task> forTask() {
+        return new TaskAdapter<>(Task.class, null);
+    }
+
+    public static TaskAdapter<Epic> forEpic() {
+        return new TaskAdapter<>(Epic.class, TaskType.EPIC);
+    }
+
+    public static TaskAdapter<SubTask> forSubTask() {
+        return new TaskAdapter<>(SubTask.class, TaskType.SUBTASK);
+    }
+
+    @Override
+    public void write(JsonWriter out, T task) throws IOException {
+        if (task == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (taskType == null) {
+            out.name(TYPE_FIELD).value(task.getTaskType().name());
+        }
+        if (task instanceof Epic epic) {
+            List<Integer> subTasksIds = epic.getSubTasksIds();
+            if (subTasksIds != null) {
+                out.name("subTasksIds").beginArray();
+                for (Integer subTaskId : subTasksIds) {
+                    out.value(subTaskId);
+                }
+                out.endArray();
+            }
+            writeDateTime(out, "epicStartTime", epic.getEpicStartTime());
+            writeDuration(out, "epicDuration", epic.getEpicDuration());
+        } else if (task instanceof SubTask subTask) {
+            out.name("epicId").value(subTask.getEpicId());
+        }
+        writeString(out, "name", task.getName());
+        writeString(out, "description", task.getDescription());
+        writeDuration(out, "duration", task.getDuration());
+        writeDateTime(out, "startTime", task.getStartTime());
+        if (task.getTaskStatus() != null) {
+            out.name("taskStatus").value(task.getTaskStatus().name());
+        }
+        out.name("taskId").value(task.getTaskId());
+        out.endObject();
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void writeDateTime(JsonWriter out, String name, LocalDateTime value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value.format(FORMATTER));
+        }
+    }
+
+    private static void writeDuration(JsonWriter out, String name, Duration value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value.toString());
+        }
+    }
+
+    // Unknown fields are skipped and missing ones are left null (or 0), as the reflective adapter did.
+    @Override
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String type = null;
+        String name = null;
+        String description = null;
+        Duration duration = null;
+        LocalDateTime startTime = null;
+        TaskStatus taskStatus = null;
+        int taskId = 0;
+        int epicId = 0;
+        List<Integer> subTasksIds = null;
+        LocalDateTime epicStartTime = null;
+        Duration epicDuration = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case TYPE_FIELD -> type = readString(in);
+                case "name" -> name = readString(in);
+                case "description" -> description = readString(in);
+                case "duration" -> duration = readDuration(in);
+                case "startTime" -> startTime = readDateTime(in);
+                case "taskStatus" -> taskStatus = readTaskStatus(in);
+                case "taskId" -> taskId = in.nextInt();
+                case "epicId" -> epicId = in.nextInt();
+                case "subTasksIds" -> subTasksIds = readIds(in);
+                case "epicStartTime" -> epicStartTime = readDateTime(in);
+                case "epicDuration" -> epicDuration = readDuration(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        Task task = switch (taskType != null ? taskType : getTaskType(type)) {
+            case TASK -> new Task(name, description, taskStatus, taskId, startTime, duration);
+            case EPIC -> new Epic(name, description, taskStatus, taskId,
+                    subTasksIds != null ? subTasksIds : new ArrayList<>(), startTime, duration, epicStartTime,
+                    epicDuration);
+            case SUBTASK -> new SubTask(name, description, taskStatus, taskId, epicId, startTime, duration);
+        };
+        return taskClass.cast(task);
+    }
+
+    // Same errors as RuntimeTypeAdapterFactory: a JsonParseException, not a JsonSyntaxException,
+    // because the JSON itself is well-formed.
+    private static TaskType getTaskType(String type) {
+        if (type == null) {
+            throw new JsonParseException("cannot deserialize " + Task.class
+                    + " because it does not define a field named " + TYPE_FIELD);
+        }
+        try {
+            return TaskType.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("cannot deserialize " + Task.class + " subtype named " + type
+                    + "; did you forget to register a subtype?");
+        }
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static LocalDateTime readDateTime(JsonReader in) throws IOException {
+        String value = readString(in);
+        return value == null ? null : LocalDateTime.parse(value, FORMATTER);
+    }
+
+    private static Duration readDuration(JsonReader in) throws IOException {
+        String value = readString(in);
+        return value == null ? null : Duration.parse(value);
+    }
+
+    // An unknown status is read as null, like Gson's enum adapter does.
+    private static TaskStatus readTaskStatus(JsonReader in) throws IOException {
+        String value = readString(in);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return TaskStatus.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static List<Integer> readIds(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<Integer> ids = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            ids.add(in.nextInt());
+        }
+        in.endArray();
+        return ids;
+    }
+}
@@ -1,21 +1,210 @@
 package ru.practicum.kanban.httpServer.handlers;
 
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import ru.practicum.kanban.httpServer.ResponseCache;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class BaseHttpHandler  implements HttpHandler {
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    // Versions restart from zero with the manager, so ETags also identify the handler instance:
+    // a tag received from a previous server run never matches.
+    private final String instanceTag = Long.toString(System.nanoTime(), 36);
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+    // Responses of at least this many bytes are compressed if the client accepts gzip or deflate.
+    // Integer.MAX_VALUE disables compression.
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
 
     protected void sendText(HttpExchange h, String text, int code) throws IOException {
-        byte[] resp = text.getBytes(StandardCharsets.UTF_8);
+        sendBytes(h, text.getBytes(StandardCharsets.UTF_8), code);
+    }
+
+    protected void sendBytes(HttpExchange h, byte[] resp, int code) throws IOException {
+        String contentEncoding = resp.length >= compressionThreshold ? getContentEncoding(h) : null;
+        sendEncoded(h, contentEncoding == null ? resp : compress(resp, contentEncoding), code, contentEncoding);
+    }
+
+    private void sendEncoded(HttpExchange h, byte[] body, int code, String contentEncoding) throws IOException {
         h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
-        h.sendResponseHeaders(code, resp.length);
-        h.getResponseBody().write(resp);
+        h.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (contentEncoding != null) {
+            h.getResponseHeaders().set("Content-Encoding", contentEncoding);
+        }
+        h.sendResponseHeaders(code, body.length);
+        h.getResponseBody().write(body);
         h.close();
     }
 
+    // Serializes the value as pretty-printed JSON, or as compact JSON if the request has "pretty=false".
+    protected String toJson(HttpExchange h, Gson gson, Object value) throws IOException {
+        StringWriter json = new StringWriter();
+        JsonWriter writer = newJsonWriter(h, gson, json);
+        gson.toJson(value, value.getClass(), writer);
+        return json.toString();
+    }
+
+    private JsonWriter newJsonWriter(HttpExchange h, Gson gson, Writer out) throws IOException {
+        JsonWriter writer = gson.newJsonWriter(out);
+        if (!isPretty(h)) {
+            writer.setIndent("");
+        }
+        return writer;
+    }
+
+    private boolean isPretty(HttpExchange h) {
+        return !"false".equals(getQueryParameters(h).get("pretty"));
+    }
+
+    // Picks the compression for the response from the request's Accept-Encoding header:
+    // gzip is preferred over deflate, and codings with q=0 are not acceptable. Returns null for none.
+    private String getContentEncoding(HttpExchange h) {
+        List<String> acceptEncoding = h.getRequestHeaders().get("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String header : acceptEncoding) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                String name = parts[0].trim().toLowerCase();
+                if (parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?")) {
+                    continue;
+                }
+                if (name.equals("gzip")) {
+                    return "gzip";
+                }
+                deflate |= name.equals("deflate");
+            }
+        }
+        return deflate ? "deflate" : null;
+    }
+
+    private static OutputStream compressingStream(OutputStream out, String contentEncoding) throws IOException {
+        return contentEncoding.equals("gzip") ? new GZIPOutputStream(out) : new DeflaterOutputStream(out);
+    }
+
+    private static byte[] compress(byte[] body, String contentEncoding) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (OutputStream out = compressingStream(compressed, contentEncoding)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    // Streams a JSON array with chunked transfer encoding. The elements are serialized one by one
+    // straight into the response body, so neither the JSON text nor its bytes are built in memory.
+    // The output is the same as gson.toJson(list) would produce for the same elements.
+    // Streamed collections are large, so they are always compressed if the client accepts it.
+    protected void sendJsonArray(HttpExchange h, Gson gson, Iterable<?> elements) throws IOException {
+        String contentEncoding = getContentEncoding(h);
+        h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        h.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (contentEncoding != null) {
+            h.getResponseHeaders().set("Content-Encoding", contentEncoding);
+        }
+        h.sendResponseHeaders(200, 0);
+        OutputStream body = contentEncoding == null
+                ? h.getResponseBody()
+                : compressingStream(h.getResponseBody(), contentEncoding);
+        try (JsonWriter writer = newJsonWriter(h, gson, new BufferedWriter(
+                new OutputStreamWriter(body, StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (Object element : elements) {
+                gson.toJson(element, element.getClass(), writer);
+            }
+            writer.endArray();
+        }
+        h.close();
+    }
+
+    // Answers 304 Not Modified if the client already has the endpoint's response for this collection version,
+    // i.e. its If-None-Match header contains the current ETag. Returns "false" if a full response is needed.
+    // ETags are weak: pretty and compact, compressed and plain responses of one version are equivalent.
+    protected boolean sendNotModified(HttpExchange h, String endpoint, long version) throws IOException {
+        List<String> ifNoneMatch = h.getRequestHeaders().get("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String etag = getEtag(endpoint, version);
+        for (String header : ifNoneMatch) {
+            for (String tag : header.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (etag.equals("W/" + tag) || tag.equals("*")) {
+                    h.getResponseHeaders().set("ETag", etag);
+                    h.sendResponseHeaders(304, -1);
+                    h.close();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Sends the body cached for the endpoint if it was encoded at this collection version.
+    // Every format (pretty or compact) and acceptable compression is cached separately, already compressed.
+    // Returns "false" if there is no such body and the response has to be encoded.
+    protected boolean sendCached(HttpExchange h, ResponseCache cache, String endpoint, long version)
+            throws IOException {
+        ResponseCache.CachedResponse response = cache.get(getVariant(h, endpoint), version);
+        if (response == null) {
+            return false;
+        }
+        h.getResponseHeaders().set("X-Cache", "HIT");
+        setEtag(h, endpoint, version);
+        sendEncoded(h, response.body(), 200, response.contentEncoding());
+        return true;
+    }
+
+    // Encodes and compresses the JSON once, caches it for the endpoint at this collection version and sends it.
+    protected void sendAndCache(HttpExchange h, ResponseCache cache, String endpoint, long version, String json)
+            throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        String contentEncoding = body.length >= compressionThreshold ? getContentEncoding(h) : null;
+        if (contentEncoding != null) {
+            body = compress(body, contentEncoding);
+        }
+        cache.put(getVariant(h, endpoint), version, body, contentEncoding);
+        h.getResponseHeaders().set("X-Cache", "MISS");
+        setEtag(h, endpoint, version);
+        sendEncoded(h, body, 200, contentEncoding);
+    }
+
+    private String getVariant(HttpExchange h, String endpoint) {
+        String contentEncoding = getContentEncoding(h);
+        return endpoint + (isPretty(h) ? "" : "?pretty=false") + (contentEncoding == null ? "" : ";" + contentEncoding);
+    }
+
+    protected void setEtag(HttpExchange h, String endpoint, long version) {
+        h.getResponseHeaders().set("ETag", getEtag(endpoint, version));
+    }
+
+    private String getEtag(String endpoint, long version) {
+        return "W/\"" + endpoint.substring(1) + "-" + instanceTag + "-" + version + "\"";
+    }
+
     protected void sendNotFound(HttpExchange httpExchange, String message) throws IOException {
         sendText(httpExchange, message, 404);
     }
@@ -36,6 +225,30 @@ public abstract class BaseHttpHandler  implements HttpHandler {
         sendText(httpExchange, message, 500);
     }
 
+    // Parses the query string; a parameter without a value maps to an empty string.
+    protected Map<String, String> getQueryParameters(HttpExchange h) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = h.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    // The client a request comes from, from the optional X-Client-Id header, or null.
+    // Clients with an ID get their own history.
+    protected String getClientId(HttpExchange h) {
+        String clientId = h.getRequestHeaders().getFirst("X-Client-Id");
+        return clientId == null || clientId.isBlank() ? null : clientId.trim();
+    }
+
     protected int getTaskId(String path) throws IOException {
         String[] arrayPath = path.split("/");
         return Integer.parseInt(arrayPath[2]);
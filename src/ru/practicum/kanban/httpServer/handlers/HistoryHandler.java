@@ -1,35 +1,34 @@
 package ru.practicum.kanban.httpServer.handlers;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpExchange;
 import ru.practicum.kanban.exceptions.MethodNotAllowedException;
 import ru.practicum.kanban.exceptions.NotFoundException;
-import ru.practicum.kanban.httpServer.adapters.DurationAdapter;
-import ru.practicum.kanban.httpServer.adapters.LocalDateTimeAdapter;
+import ru.practicum.kanban.httpServer.JsonCodec;
 import ru.practicum.kanban.httpServer.RequestMethod;
+import ru.practicum.kanban.httpServer.ResponseCache;
 import ru.practicum.kanban.model.Task;
 import ru.practicum.kanban.service.TaskManager;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static ru.practicum.kanban.httpServer.RequestMethod.GET_TASKS;
 
 public class HistoryHandler extends BaseHttpHandler {
 
+    private static final String ENDPOINT = "/history";
+
     private final TaskManager taskManager;
+    private final ResponseCache responseCache;
     protected final Gson gson;
 
-    public HistoryHandler(TaskManager taskManager) {
+    public HistoryHandler(TaskManager taskManager, ResponseCache responseCache) {
         this.taskManager = taskManager;
-        gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .registerTypeAdapter(Duration.class, new DurationAdapter())
-                .setPrettyPrinting()
-                .create();
+        this.responseCache = responseCache;
+        gson = JsonCodec.getGson();
     }
 
     private RequestMethod getRequestMethod(String path, String requestMethod)
@@ -44,12 +43,50 @@ public class HistoryHandler extends BaseHttpHandler {
         throw new NotFoundException("URI not recognized: " + path);
     }
 
+    // Sends the history of the client given by the X-Client-Id header, or the shared history.
+    // With the "limit" parameter only the last "limit" entries are sent.
+    // Every response is tagged with the version of its history, but only the whole shared history is cached:
+    // caching every client's history and every limit would add a cache entry per client and per limit.
     private void getHistory(HttpExchange exchange) throws IOException {
-        List<Task> history = taskManager.getHistory();
+        String clientId = getClientId(exchange);
+        String endpoint = clientId == null
+                ? ENDPOINT
+                : ENDPOINT + "/" + URLEncoder.encode(clientId, StandardCharsets.UTF_8);
+        Integer limit = null;
+        String limitParameter = getQueryParameters(exchange).get("limit");
+        if (limitParameter != null) {
+            try {
+                limit = Integer.parseInt(limitParameter);
+            } catch (NumberFormatException e) {
+                sendBadRequest(exchange);
+                return;
+            }
+            if (limit <= 0) {
+                sendBadRequest(exchange);
+                return;
+            }
+            endpoint += "?limit=" + limit;
+        }
+        boolean cacheable = clientId == null && limit == null;
+        long version = taskManager.getHistoryVersion(clientId);
+        if (sendNotModified(exchange, endpoint, version)
+                || cacheable && sendCached(exchange, responseCache, endpoint, version)) {
+            return;
+        }
+        List<Task> history = limit == null
+                ? taskManager.getHistory(clientId)
+                : taskManager.getRecentHistory(clientId, limit);
         if (history.isEmpty()) {
             sendNotFound(exchange, "History is empty");
+            return;
+        }
+        String json = toJson(exchange, gson, history);
+        if (cacheable) {
+            sendAndCache(exchange, responseCache, endpoint, version, json);
+        } else {
+            setEtag(exchange, endpoint, version);
+            sendText(exchange, json, 200);
         }
-        sendText(exchange, gson.toJson(history), 200);
     }
 
     @Override
@@ -1,34 +1,33 @@
 package ru.practicum.kanban.httpServer.handlers;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpExchange;
 import ru.practicum.kanban.exceptions.MethodNotAllowedException;
 import ru.practicum.kanban.exceptions.NotFoundException;
+import ru.practicum.kanban.httpServer.JsonCodec;
 import ru.practicum.kanban.httpServer.RequestMethod;
-import ru.practicum.kanban.httpServer.adapters.DurationAdapter;
-import ru.practicum.kanban.httpServer.adapters.LocalDateTimeAdapter;
+import ru.practicum.kanban.httpServer.ResponseCache;
 import ru.practicum.kanban.model.Task;
 import ru.practicum.kanban.service.TaskManager;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.Set;
 
 import static ru.practicum.kanban.httpServer.RequestMethod.GET_TASKS;
 
 public class PrioritizedTaskHandler extends BaseHttpHandler {
+    private static final String ENDPOINT = "/prioritized";
+    // Larger sets are streamed instead of being encoded and cached as a whole.
+    private static final int STREAMING_THRESHOLD = 1000;
+
     private final TaskManager taskManager;
+    private final ResponseCache responseCache;
     protected final Gson gson;
 
-    public PrioritizedTaskHandler(TaskManager taskManager) {
+    public PrioritizedTaskHandler(TaskManager taskManager, ResponseCache responseCache) {
         this.taskManager = taskManager;
-        gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .registerTypeAdapter(Duration.class, new DurationAdapter())
-                .setPrettyPrinting()
-                .create();
+        this.responseCache = responseCache;
+        gson = JsonCodec.getGson();
     }
 
     private RequestMethod getRequestMethod(String path, String requestMethod)
@@ -44,11 +43,22 @@ public class PrioritizedTaskHandler extends BaseHttpHandler {
     }
 
     private void getHistory(HttpExchange exchange) throws IOException {
+        long version = taskManager.getVersion();
+        if (sendNotModified(exchange, ENDPOINT, version)
+                || sendCached(exchange, responseCache, ENDPOINT, version)) {
+            return;
+        }
         Set<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
         if (prioritizedTasks.isEmpty()) {
             sendNotFound(exchange, "Prioritized task set is empty");
+            return;
+        }
+        if (prioritizedTasks.size() > STREAMING_THRESHOLD) {
+            setEtag(exchange, ENDPOINT, version);
+            sendJsonArray(exchange, gson, prioritizedTasks);
+            return;
         }
-        sendText(exchange, gson.toJson(prioritizedTasks), 200);
+        sendAndCache(exchange, responseCache, ENDPOINT, version, toJson(exchange, gson, prioritizedTasks));
     }
 
     @Override
@@ -1,54 +1,62 @@
 package ru.practicum.kanban.httpServer.handlers;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import ru.practicum.kanban.exceptions.MethodNotAllowedException;
 import ru.practicum.kanban.exceptions.NotFoundException;
 import ru.practicum.kanban.exceptions.TaskIsOverlapException;
-import ru.practicum.kanban.httpServer.adapters.DurationAdapter;
-import ru.practicum.kanban.httpServer.adapters.LocalDateTimeAdapter;
+import ru.practicum.kanban.httpServer.JsonCodec;
 import ru.practicum.kanban.httpServer.RequestMethod;
-import ru.practicum.kanban.httpServer.adapters.RuntimeTypeAdapterFactory;
+import ru.practicum.kanban.httpServer.ResponseCache;
 import ru.practicum.kanban.model.Task;
-import ru.practicum.kanban.model.Epic;
-import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.enums.TaskStatus;
 import ru.practicum.kanban.model.enums.TaskType;
+import ru.practicum.kanban.service.BatchResult;
+import ru.practicum.kanban.service.TaskFilter;
 import ru.practicum.kanban.service.TaskManager;
 
 import java.io.IOException;
 import java.io.InputStream;
 
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
 
 import static ru.practicum.kanban.httpServer.RequestMethod.*;
 
 public class TaskHandler extends BaseHttpHandler {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Larger collections are streamed page by page instead of being encoded and cached as a whole.
+    private static final int STREAMING_THRESHOLD = 1000;
+    private static final int STREAMING_PAGE_SIZE = 256;
+
     private final TaskManager manager;
+    private final ResponseCache responseCache;
     protected final Gson gson;
     private final TaskType taskType;
+    private final String endpoint;
 
-    // Runtime type adapter to handle polymorphic (Task/Epic/SubTask) JSON serialization.
-    RuntimeTypeAdapterFactory<Task> taskAdapter = RuntimeTypeAdapterFactory
-            .of(Task.class, "type")
-            .registerSubtype(Task.class, "TASK")
-            .registerSubtype(Epic.class, "EPIC")
-            .registerSubtype(SubTask.class, "SUBTASK");
-
-    public TaskHandler(TaskManager manager, TaskType taskType) {
+    public TaskHandler(TaskManager manager, TaskType taskType, ResponseCache responseCache) {
         this.manager = manager;
         this.taskType = taskType;
-        gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .registerTypeAdapter(Duration.class, new DurationAdapter())
-                .registerTypeAdapterFactory(taskAdapter)
-                .setPrettyPrinting()
-                .create();
+        this.responseCache = responseCache;
+        this.endpoint = switch (taskType) {
+            case TASK -> "/tasks";
+            case EPIC -> "/epics";
+            case SUBTASK -> "/subtasks";
+        };
+        gson = JsonCodec.getGson();
     }
 
     // Parses request body as JSON and adds or updates a task.
@@ -86,6 +94,37 @@ public class TaskHandler extends BaseHttpHandler {
         }
     }
 
+    // Parses request body as a JSON array of tasks of any type and adds or updates them as one batch.
+    // Responds with the result of every task: 200 if the batch was applied,
+    // 400 if any task was rejected and therefore nothing was applied.
+    private void addBatch(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        if (body.isEmpty()) {
+            sendNotFound(exchange, "Incorrect data");
+            return;
+        }
+
+        Task[] batch;
+        try {
+            batch = gson.fromJson(body, Task[].class);
+        } catch (JsonParseException ex) {
+            sendBadRequest(exchange);
+            return;
+        }
+        if (batch == null) {
+            sendBadRequest(exchange);
+            return;
+        }
+
+        List<BatchResult> results = manager.addTasks(Arrays.asList(batch));
+        boolean applied = results.isEmpty() || results.getFirst().isApplied();
+        sendText(exchange, toJson(exchange, gson, results), applied ? 200 : 400);
+    }
+
     private void deleteTask(HttpExchange exchange, int id) throws IOException {
         try {
             manager.removeTaskById(id);
@@ -95,6 +134,73 @@ public class TaskHandler extends BaseHttpHandler {
         }
     }
 
+    // Deletes all tasks matching the filter given by the query parameters (see parseFilter)
+    // and responds with their IDs. Removing an epic removes its subtasks.
+    // A request without any filter is rejected, so a bare DELETE never clears a collection.
+    private void deleteTasks(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = getQueryParameters(exchange);
+        if (!hasFilter(parameters)) {
+            sendBadRequest(exchange);
+            return;
+        }
+        TaskFilter filter;
+        try {
+            filter = parseFilter(parameters);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendBadRequest(exchange);
+            return;
+        }
+
+        List<Integer> removedIds = manager.removeIf(filter);
+        sendText(exchange, toJson(exchange, gson, removedIds), 200);
+    }
+
+    // Sends the tasks matching the filter given by the query parameters (see parseFilter), ordered by ID.
+    // The tasks are found through the manager's indexes, so the cost depends on the result, not on the board.
+    // No matching task is an empty array rather than 404.
+    private void queryTasks(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        TaskFilter filter;
+        try {
+            filter = parseFilter(parameters);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendBadRequest(exchange);
+            return;
+        }
+        sendText(exchange, toJson(exchange, gson, manager.query(filter)), 200);
+    }
+
+    private static boolean hasFilter(Map<String, String> parameters) {
+        return parameters.containsKey("status") || parameters.containsKey("startFrom")
+                || parameters.containsKey("startTo") || parameters.containsKey("ids")
+                || parameters.containsKey("epicId");
+    }
+
+    // Builds the filter from the query parameters: "status" and "type" (comma-separated names),
+    // "startFrom" and "startTo" (the start time range, ISO local date-time, "startTo" exclusive),
+    // "ids" (comma-separated IDs) and "epicId" (subtasks of the epic).
+    // Only tasks of the endpoint's type match unless "type" is given.
+    private TaskFilter parseFilter(Map<String, String> parameters) {
+        return new TaskFilter(
+                parameters.containsKey("type")
+                        ? parseSet(parameters.get("type"), TaskType::valueOf)
+                        : Set.of(taskType),
+                parameters.containsKey("status")
+                        ? parseSet(parameters.get("status"), TaskStatus::valueOf)
+                        : null,
+                parameters.containsKey("startFrom") ? LocalDateTime.parse(parameters.get("startFrom")) : null,
+                parameters.containsKey("startTo") ? LocalDateTime.parse(parameters.get("startTo")) : null,
+                parameters.containsKey("ids") ? parseSet(parameters.get("ids"), Integer::valueOf) : null,
+                parameters.containsKey("epicId") ? Integer.valueOf(parameters.get("epicId")) : null);
+    }
+
+    private static <T> Set<T> parseSet(String values, Function<String, T> parser) {
+        Set<T> set = new HashSet<>();
+        for (String value : values.split(",")) {
+            set.add(parser.apply(value.trim()));
+        }
+        return set;
+    }
+
     // Parses the request URI and HTTP method to a RequestMethod enum.
     // Throws NotFoundException or MethodNotAllowedException on invalid path or method.
     private RequestMethod getRequestMethod(String path, String requestMethod)
@@ -121,11 +227,16 @@ public class TaskHandler extends BaseHttpHandler {
                 }
 
             case "POST":
+                if (segments.length == 3 && segments[1].equals("tasks") && segments[2].equals("batch")) {
+                    return ADD_BATCH;
+                }
                 return ADD_TASK;
 
             case "DELETE":
                 if (segments.length == 3) {
                     return DELETE_BY_ID;
+                } else if (segments.length == 2) {
+                    return DELETE_TASKS;
                 } else {
                     throw new MethodNotAllowedException(
                             "DELETE not supported on this URI: " + path);
@@ -137,23 +248,92 @@ public class TaskHandler extends BaseHttpHandler {
         }
     }
 
+    // Without the limit and cursor parameters the whole collection is returned.
+    // With filter parameters only the matching tasks are returned.
     private void getTasks(HttpExchange exchange) throws IOException {
-        List<Task> list = switch (taskType) {
-            case TASK -> manager.getTasks();
-            case EPIC -> manager.getEpics();
-            case SUBTASK -> manager.getSubTasks();
-        };
+        Map<String, String> parameters = getQueryParameters(exchange);
+        if (hasFilter(parameters) || parameters.containsKey("type")) {
+            queryTasks(exchange, parameters);
+            return;
+        }
+        if (parameters.containsKey("limit") || parameters.containsKey("cursor")) {
+            getPage(exchange, parameters);
+            return;
+        }
+        long version = manager.getVersion(taskType);
+        if (sendNotModified(exchange, endpoint, version)
+                || sendCached(exchange, responseCache, endpoint, version)) {
+            return;
+        }
+        List<Task> list = manager.getPage(taskType, 0, STREAMING_THRESHOLD + 1);
 
         if (list.isEmpty()) {
             sendNotFound(exchange, "Tasks not found");
+        } else if (list.size() > STREAMING_THRESHOLD) {
+            setEtag(exchange, endpoint, version);
+            sendJsonArray(exchange, gson, iterateFrom(list));
         } else {
-            sendText(exchange, gson.toJson(list), 200);
+            sendAndCache(exchange, responseCache, endpoint, version, toJson(exchange, gson, list));
+        }
+    }
+
+    // Iterates over the collection starting with the given first page and fetching the following pages
+    // on demand, so only one page of tasks is held at a time.
+    // The iteration is not a snapshot: tasks added or removed while it runs may or may not be seen.
+    private Iterable<Task> iterateFrom(List<Task> firstPage) {
+        return () -> new Iterator<>() {
+            private List<Task> page = firstPage;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (index == page.size() && !page.isEmpty()) {
+                    page = manager.getPage(taskType, page.get(page.size() - 1).getTaskId(), STREAMING_PAGE_SIZE);
+                    index = 0;
+                }
+                return index < page.size();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+    }
+
+    // Sends up to "limit" tasks with IDs greater than "cursor" (0 for the first page), ordered by ID.
+    // If more tasks follow, the X-Next-Cursor header holds the cursor of the next page.
+    // A page past the end is an empty array rather than 404, so a client can poll for new tasks with its cursor.
+    private void getPage(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        int limit;
+        int cursor;
+        try {
+            limit = Integer.parseInt(parameters.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+            cursor = Integer.parseInt(parameters.getOrDefault("cursor", "0"));
+        } catch (NumberFormatException e) {
+            sendBadRequest(exchange);
+            return;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            sendBadRequest(exchange);
+            return;
+        }
+
+        // One extra task tells whether there is a next page.
+        List<Task> page = manager.getPage(taskType, cursor, limit + 1);
+        if (page.size() > limit) {
+            page = page.subList(0, limit);
+            exchange.getResponseHeaders().set("X-Next-Cursor", String.valueOf(page.get(limit - 1).getTaskId()));
         }
+        sendText(exchange, toJson(exchange, gson, page), 200);
     }
 
     private void getTask(HttpExchange exchange, int id) throws IOException {
         try {
-            Task task = manager.getTaskById(id);
+            Task task = manager.getTaskById(id, getClientId(exchange));
 
             // Ensure the task type matches this handler
             if (task.getTaskType() != this.taskType) {
@@ -161,7 +341,7 @@ public class TaskHandler extends BaseHttpHandler {
                         "Task with ID " + id + " not found in " + this.taskType
                 );
             }
-            sendText(exchange, gson.toJson(task), 200);
+            sendText(exchange, toJson(exchange, gson, task), 200);
 
         } catch (NoSuchElementException e) {
             sendNotFound(exchange, e.getMessage());
@@ -174,7 +354,7 @@ public class TaskHandler extends BaseHttpHandler {
             if (subTasks.isEmpty()) {
                 sendNotFound(exchange, "Tasks not found");
             }
-            sendText(exchange, gson.toJson(subTasks), 200);
+            sendText(exchange, toJson(exchange, gson, subTasks), 200);
         } catch (NoSuchElementException e) {
             sendNotFound(exchange, e.getMessage());
         }
@@ -191,7 +371,9 @@ public class TaskHandler extends BaseHttpHandler {
                 case GET_TASKS -> getTasks(exchange);
                 case GET_BY_ID -> getTask(exchange, getTaskId(path));
                 case ADD_TASK -> addTask(exchange);
+                case ADD_BATCH -> addBatch(exchange);
                 case DELETE_BY_ID -> deleteTask(exchange, getTaskId(path));
+                case DELETE_TASKS -> deleteTasks(exchange);
                 case GET_SUBTASKS_BY_EPIC_ID -> getSubTasksByEpicId(exchange, getTaskId(path));
             }
         } catch (NotFoundException e) {
@@ -4,12 +4,14 @@ import ru.practicum.kanban.model.enums.TaskStatus;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 
 public class Epic extends Task {
-    private List<Integer> subTasksIds = new ArrayList<>();
+    // Immutable, so an epic never changes once it is handed out and its copies share the IDs instead of copying them.
+    // A task manager replaces a stored epic with a new copy when the epic's subtasks change.
+    private List<Integer> subTasksIds = List.of();
     private LocalDateTime epicStartTime;
     private Duration epicDuration;
 
@@ -24,11 +26,11 @@ public class Epic extends Task {
         super(name, description, taskStatus, taskId, startTime, duration);
     }
 
-    public Epic(String name, String description, TaskStatus taskStatus, int taskId, List<Integer> subTasksIds,
+    public Epic(String name, String description, TaskStatus taskStatus, int taskId, Collection<Integer> subTasksIds,
                 LocalDateTime startTime, Duration duration, LocalDateTime epicStartTime, Duration epicDuration) {
 
         this(name, description, taskStatus, taskId, startTime, duration);
-        this.subTasksIds = subTasksIds;
+        this.subTasksIds = subTasksIds == null ? List.of() : List.copyOf(subTasksIds);
         this.epicStartTime = epicStartTime;
         this.epicDuration = epicDuration;
     }
@@ -61,14 +63,6 @@ public class Epic extends Task {
         return subTasksIds;
     }
 
-    public void addSubTaskId(int subTaskId) {
-        subTasksIds.add(subTaskId);
-    }
-
-    public void removeSubTaskById(Integer subTaskId) {
-        subTasksIds.remove(subTaskId);
-    }
-
     @Override
     public String toString() {
         return getTaskId() + "," +
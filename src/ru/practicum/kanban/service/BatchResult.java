@@ -0,0 +1,19 @@
+package ru.practicum.kanban.service;
+
+// Result of one task of a batch passed to TaskManager.addTasks or TaskManager.updateAll.
+// message explains why a task was rejected; it is null for applied tasks.
+public record BatchResult(int taskId, Status status, String message) {
+
+    public boolean isApplied() {
+        return status == Status.ADDED || status == Status.UPDATED;
+    }
+
+    public enum Status {
+        ADDED,
+        UPDATED,
+        // The task is invalid. A batch is applied as a whole, so none of its tasks were applied.
+        REJECTED,
+        // The task is valid, but the batch was not applied because another task was rejected.
+        NOT_APPLIED
+    }
+}
@@ -0,0 +1,172 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Task;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-safe wrapper that does not block readers of the board on the history.
+// A view is appended to a lock-free buffer and applied to the underlying history manager later, in batches:
+// by the viewing thread once the buffer is full, if no other thread is draining it, and by every other call,
+// which drains the buffer under the lock first. So getHistory and remove see every view recorded before them,
+// and getHistory returns a consistent snapshot of the history.
+// The buffer is a single queue rather than a buffer per thread, so the views are applied in the order they happened.
+// Every view keeps the time it was recorded at, however long it waits in the buffer.
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int DRAIN_THRESHOLD = 64;
+
+    private final HistoryManager historyManager;
+    private final Queue<View> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ConcurrentHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    @Override
+    public void addTask(Task task) {
+        addTask(null, task);
+    }
+
+    @Override
+    public void addTask(String clientId, Task task) {
+        addTask(clientId, task, historyManager.currentTimeMillis());
+    }
+
+    @Override
+    public void addTask(Task task, long viewedAt) {
+        addTask(null, task, viewedAt);
+    }
+
+    @Override
+    public void addTask(String clientId, Task task, long viewedAt) {
+        buffer.offer(new View(clientId, task, viewedAt));
+        if (bufferSize.incrementAndGet() >= DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return getHistory(null);
+    }
+
+    @Override
+    public List<Task> getHistory(String clientId) {
+        lock.lock();
+        try {
+            drain();
+            return historyManager.getHistory(clientId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getRecentHistory(int limit) {
+        return getRecentHistory(null, limit);
+    }
+
+    @Override
+    public List<Task> getRecentHistory(String clientId, int limit) {
+        lock.lock();
+        try {
+            drain();
+            return historyManager.getRecentHistory(clientId, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Entry> getEntries() {
+        return getEntries(null);
+    }
+
+    @Override
+    public List<Entry> getEntries(String clientId) {
+        lock.lock();
+        try {
+            drain();
+            return historyManager.getEntries(clientId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return getVersion(null);
+    }
+
+    @Override
+    public long getVersion(String clientId) {
+        lock.lock();
+        try {
+            drain();
+            return historyManager.getVersion(clientId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> getClientIds() {
+        lock.lock();
+        try {
+            drain();
+            return historyManager.getClientIds();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        lock.lock();
+        try {
+            drain();
+            historyManager.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.lock();
+        try {
+            buffer.clear();
+            bufferSize.set(0);
+            historyManager.removeAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must be called under the lock.
+    private void drain() {
+        View view;
+        while ((view = buffer.poll()) != null) {
+            bufferSize.decrementAndGet();
+            historyManager.addTask(view.clientId(), view.task(), view.viewedAt());
+        }
+    }
+
+    // The clock of the underlying history manager is read without the lock: clocks are thread-safe.
+    @Override
+    public long currentTimeMillis() {
+        return historyManager.currentTimeMillis();
+    }
+
+    private record View(String clientId, Task task, long viewedAt) {
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Task;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Thread-safe task manager for the HTTP server.
+// Read methods work on concurrent collections without locking and never throw ConcurrentModificationException.
+// Mutating methods are serialized, because the overlap check and the epic bounds depend on the whole board.
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+
+    public ConcurrentTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    // The history manager is wrapped into a ConcurrentHistoryManager,
+    // so recording a view in getTaskById does not block other readers.
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        super(historyManager, true);
+    }
+
+    @Override
+    public synchronized void addTask(Task task) {
+        super.addTask(task);
+    }
+
+    @Override
+    public synchronized List<BatchResult> addTasks(Collection<? extends Task> tasks) {
+        return super.addTasks(tasks);
+    }
+
+    @Override
+    public synchronized List<BatchResult> updateAll(Collection<? extends Task> tasks) {
+        return super.updateAll(tasks);
+    }
+
+    @Override
+    public synchronized void removeAllTasks() {
+        super.removeAllTasks();
+    }
+
+    @Override
+    public synchronized void removeTaskById(int taskId) {
+        super.removeTaskById(taskId);
+    }
+
+    @Override
+    public synchronized List<Integer> removeIf(Predicate<? super Task> filter) {
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public synchronized void update(Task task) {
+        super.update(task);
+    }
+}
@@ -2,200 +2,456 @@ package ru.practicum.kanban.service;
 
 import ru.practicum.kanban.exceptions.ManagerLoadException;
 import ru.practicum.kanban.exceptions.ManagerSaveException;
-import ru.practicum.kanban.model.Epic;
-import ru.practicum.kanban.model.SubTask;
 import ru.practicum.kanban.model.Task;
-import ru.practicum.kanban.model.enums.TaskStatus;
-import ru.practicum.kanban.model.enums.TaskType;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public final class FileBackedTaskManager extends InMemoryTaskManager {
+    // The history file is rewritten once it holds twice as many records as after the previous rewrite,
+    // but not before it holds this many.
+    private static final int MIN_HISTORY_RECORDS = 1000;
 
-    private final String taskIdCounterFileName = "./src/ru/practicum/kanban/resources/task_id_counter.csv";
-    private final Path taskCounterFile = Paths.get(taskIdCounterFileName);
     private final Path file;
+    private final Path tempFile;
+    private final SnapshotFormat snapshotFormat;
+    private final TaskJournal journal;
+    private final GroupCommitter committer;
+    private final TaskJournal historyJournal;
+    private volatile int historyRecordLimit;
+    private ScheduledExecutorService compactionExecutor;
     boolean exceptionCaught = false;
 
     public FileBackedTaskManager(Path file) {
+        this(file, PersistenceMode.SNAPSHOT, null);
+    }
+
+    public FileBackedTaskManager(Path file, SnapshotFormat snapshotFormat) {
+        this(file, PersistenceMode.SNAPSHOT, null, Duration.ZERO, 1, snapshotFormat);
+    }
+
+    public FileBackedTaskManager(Path file, PersistenceMode persistenceMode, Duration compactionInterval) {
+        this(file, persistenceMode, compactionInterval, Duration.ZERO, 1);
+    }
+
+    // In JOURNAL mode mutations are appended to "<file>.journal" and compacted into the snapshot file
+    // every compactionInterval (if it is not null) and on close().
+    // Mutations are persisted in batches: a flush happens flushWindow after the first pending mutation
+    // or as soon as maxBatchSize mutations are pending. With an empty flushWindow every mutation is flushed
+    // before the mutating method returns.
+    public FileBackedTaskManager(Path file, PersistenceMode persistenceMode, Duration compactionInterval,
+                                 Duration flushWindow, int maxBatchSize) {
+        this(file, persistenceMode, compactionInterval, flushWindow, maxBatchSize, SnapshotFormat.CSV);
+    }
+
+    // The snapshot is written in snapshotFormat; a snapshot in the other format is still loaded.
+    public FileBackedTaskManager(Path file, PersistenceMode persistenceMode, Duration compactionInterval,
+                                 Duration flushWindow, int maxBatchSize, SnapshotFormat snapshotFormat) {
+        this(file, persistenceMode, compactionInterval, flushWindow, maxBatchSize, snapshotFormat,
+                Managers.getDefaultHistory());
+    }
+
+    // The history is persisted to "<file>.history" as a sequence of viewed task IDs, see getTaskById().
+    public FileBackedTaskManager(Path file, PersistenceMode persistenceMode, Duration compactionInterval,
+                                 Duration flushWindow, int maxBatchSize, SnapshotFormat snapshotFormat,
+                                 HistoryManager historyManager) {
+        this(file, persistenceMode, compactionInterval, flushWindow, maxBatchSize, snapshotFormat, historyManager,
+                false);
+    }
+
+    // With threadSafe the manager can serve several threads at once, like ConcurrentTaskManager:
+    // the mutating methods are synchronized and the reads work on concurrent collections without locking.
+    public FileBackedTaskManager(Path file, PersistenceMode persistenceMode, Duration compactionInterval,
+                                 Duration flushWindow, int maxBatchSize, SnapshotFormat snapshotFormat,
+                                 HistoryManager historyManager, boolean threadSafe) {
+        super(historyManager, threadSafe);
         this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.snapshotFormat = snapshotFormat;
+        this.journal = persistenceMode == PersistenceMode.JOURNAL
+                ? new TaskJournal(file.resolveSibling(file.getFileName() + ".journal"))
+                : null;
+        this.committer = new GroupCommitter(this::flushMutations, flushWindow, maxBatchSize);
         try {
-            Path resourcesDir = Paths.get("./src/ru/practicum/kanban/resources/");
-            if (Files.notExists(resourcesDir)) {
-                Files.createDirectory(resourcesDir);
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null && Files.notExists(directory)) {
+                Files.createDirectories(directory);
             }
+            // Left over from a save interrupted by a crash; the snapshot itself is still intact.
+            Files.deleteIfExists(tempFile);
 
-            if (Files.exists(file)) {
+            if (Files.exists(file) && Files.size(file) != 0) {
                 loadFromFile();
-                taskCounter = loadTaskCounterFromFile();
+            } else if (Files.exists(file) && journal == null) {
+                // An empty file, e.g. created for the manager: start with an empty board.
+                exceptionCaught = true;
+                System.out.println("File " + file + " is empty. The file will be overwritten.");
             }
+        } catch (EOFException | RuntimeException e) {
+            // Snapshots are replaced atomically, so this is a corrupt or foreign file.
+            exceptionCaught = true;
+            setAsideUnreadableSnapshot(e);
         } catch (IOException e) {
             throw new ManagerLoadException("File reading error: " + e.getMessage());
-        } catch (ManagerLoadException e) {
-            exceptionCaught = true;
-            Scanner scanner = new Scanner(System.in);
-            System.out.println(e.getMessage() + "\n");
-            while (true) {
-                System.out.println("Continue and overwrite the file?");
-                System.out.println("Type 'y/n':");
-                String input = scanner.nextLine();
-                switch (input) {
-                    case "y":
-                        return;
-                    case "n":
-                        System.exit(1);
-                    default:
-                        System.out.println("Incorrect input");
-                }
+        }
+        if (journal != null) {
+            journal.replay(this::applyJournalRecord);
+        }
+        // Restored after the tasks, so the history refers to their current state.
+        historyJournal = new TaskJournal(file.resolveSibling(file.getFileName() + ".history"));
+        historyJournal.replay(this::applyHistoryRecord);
+        historyRecordLimit = Math.max(MIN_HISTORY_RECORDS, 2 * historyJournal.getRecordCount());
+        if (journal != null) {
+            startCompaction(compactionInterval);
+        }
+    }
+
+    // Every view is appended to the history file as "<task ID>,<view time>" or "<task ID>,<view time>,<client ID>",
+    // with the same time in epoch milliseconds as the history entry, so the restored history evicts the entries
+    // by the same age as the running one.
+    // Views are recorded under the lock of the removals: a view of a task removed after it was found is dropped,
+    // and the record of a view never follows the removal of its task, whose ID may be given to a new task.
+    // Views are not mutations: they are written with the next flush of mutations, on compaction and on close,
+    // so a crash may lose the latest views, but never the tasks.
+    @Override
+    protected synchronized void addView(String clientId, Task task, long viewedAt) {
+        if (findTask(task.getTaskId()) == null) {
+            return;
+        }
+        super.addView(clientId, task, viewedAt);
+        appendHistoryRecord(toHistoryRecord(task.getTaskId(), viewedAt, clientId));
+    }
+
+    // Removals from the history are appended as "-<task ID>", and clearing it as "*",
+    // because the ID of a removed task may be given to a new one.
+    // The history file is null while the tasks are being restored.
+    private void appendHistoryRecord(String record) {
+        if (historyJournal == null) {
+            return;
+        }
+        historyJournal.append(record);
+        if (historyJournal.getRecordCount() > historyRecordLimit) {
+            compactHistory();
+        }
+    }
+
+    // Rewrites the history file with one record per history entry, in the order the entries were viewed.
+    private void compactHistory() {
+        historyJournal.rewrite(this::getHistoryRecords);
+        historyRecordLimit = Math.max(MIN_HISTORY_RECORDS, 2 * historyJournal.getRecordCount());
+    }
+
+    private List<String> getHistoryRecords() {
+        HistoryManager historyManager = getHistoryManager();
+        List<String> records = new ArrayList<>();
+        for (String clientId : historyManager.getClientIds()) {
+            for (HistoryManager.Entry entry : historyManager.getEntries(clientId)) {
+                records.add(toHistoryRecord(entry.task().getTaskId(), entry.viewedAt(), clientId));
             }
         }
+        for (HistoryManager.Entry entry : historyManager.getEntries()) {
+            records.add(toHistoryRecord(entry.task().getTaskId(), entry.viewedAt(), null));
+        }
+        return records;
+    }
+
+    private static String toHistoryRecord(int taskId, long viewedAt, String clientId) {
+        return taskId + "," + viewedAt + (clientId == null ? "" : "," + clientId);
+    }
+
+    // Replays a record of the history file without viewing the task, so nothing is appended again.
+    // Views older than the age limit of the history are dropped by the history itself.
+    private void applyHistoryRecord(String record) {
+        try {
+            if ("*".equals(record)) {
+                getHistoryManager().removeAll();
+            } else if (record.startsWith("-")) {
+                getHistoryManager().remove(Integer.parseInt(record.substring(1)));
+            } else {
+                String[] data = record.split(",", 3);
+                restoreView(data.length == 3 ? data[2] : null, Integer.parseInt(data[0]), Long.parseLong(data[1]));
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Skipping history record " + record + ": " + e.getMessage());
+        }
     }
 
     @Override
-    public void addTask(Task task) {
+    public synchronized void addTask(Task task) {
         super.addTask(task);
-        save();
-        saveTaskCounter();
+        if (journal != null) {
+            journal.append("ADD," + taskCounter.get() + "," + task.getDataForFileSaving());
+        }
+        committer.submit();
     }
 
-    private Task fromString(String value) {
-        String[] data = value.split(",", 10);
-        try {
-            int taskId = Integer.parseInt(data[0]);
-            TaskType taskType = TaskType.valueOf(data[1]);
-            String taskName = data[2];
-            TaskStatus taskStatus = TaskStatus.valueOf(data[3]);
-            String taskDescription = data[4];
-            String startTime = data[5];
-            String duration = data[6];
-
-            return switch (taskType) {
-                case TASK -> new Task(
-                        taskName,
-                        taskDescription,
-                        taskStatus,
-                        taskId,
-                        LocalDateTime.parse(startTime),
-                        Duration.parse(duration)
-                );
-                case EPIC -> {
-                    String epicStartTime = data[7];
-                    String epicDuration = data[8];
-                    yield new Epic(
-                            taskName,
-                            taskDescription,
-                            taskStatus,
-                            taskId,
-                            new ArrayList<>(),
-                            LocalDateTime.parse(startTime),
-                            Duration.parse(duration),
-                            LocalDateTime.parse(epicStartTime),
-                            Duration.parse(epicDuration)
-                    );
-                }
-                case SUBTASK -> {
-                    int epicId = Integer.parseInt(data[9]);
-                    yield new SubTask(
-                            taskName,
-                            taskDescription,
-                            taskStatus,
-                            taskId,
-                            epicId,
-                            LocalDateTime.parse(startTime),
-                            Duration.parse(duration)
-                    );
+    @Override
+    public synchronized List<BatchResult> addTasks(Collection<? extends Task> batch) {
+        return persistBatch(batch, super.addTasks(batch));
+    }
+
+    @Override
+    public synchronized List<BatchResult> updateAll(Collection<? extends Task> batch) {
+        return persistBatch(batch, super.updateAll(batch));
+    }
+
+    // Journals the applied tasks of the batch and submits the batch as a single mutation,
+    // so it is persisted with one snapshot rewrite or one journal sync.
+    private List<BatchResult> persistBatch(Collection<? extends Task> batch, List<BatchResult> results) {
+        // A batch is applied either completely or not at all.
+        if (results.isEmpty() || !results.getFirst().isApplied()) {
+            return results;
+        }
+        if (journal != null) {
+            Iterator<BatchResult> result = results.iterator();
+            for (Task task : batch) {
+                if (result.next().status() == BatchResult.Status.ADDED) {
+                    journal.append("ADD," + taskCounter.get() + "," + task.getDataForFileSaving());
+                } else {
+                    journal.append("UPDATE," + task.getDataForFileSaving());
                 }
-            };
-        } catch (IndexOutOfBoundsException e) {
-            System.out.println("Error loading data from file: " + e.getMessage());
-            System.exit(1);
-        } catch (NumberFormatException e) {
-            System.out.println("There is no task data in the string: " + e.getMessage());
-        }
-        throw new NoSuchElementException("Error loading data from string.");
-    }
-
-    private void loadFromFile() throws IOException, ManagerSaveException {
-        if (Files.size(file) != 0) {
-            final List<String> data = Files.readAllLines(file);
-            for (int i = 1; i < data.size(); i++) { // first line is header
-                try {
-                    Task task = fromString(data.get(i));
-                    super.addTask(task);
-                } catch (NoSuchElementException e) {
-                    System.out.println(e.getMessage());
+            }
+        }
+        committer.submit();
+        return results;
+    }
+
+    // Persists all mutations submitted so far with a single write:
+    // syncs the journal, or rewrites the snapshot once for the whole batch.
+    private void flushMutations() {
+        historyJournal.flush();
+        if (journal != null) {
+            journal.flush();
+            journal.force();
+        } else {
+            synchronized (this) {
+                save();
+            }
+        }
+    }
+
+    // Blocks until every mutation made before the call has been persisted.
+    public void awaitDurability() throws InterruptedException {
+        committer.awaitFlushed();
+    }
+
+    public FlushStats getFlushStats() {
+        return committer.getStats();
+    }
+
+    // Applies a journal record written by one of the mutating methods.
+    // Records that can no longer be applied (e.g. already contained in the snapshot) are skipped.
+    private void applyJournalRecord(String record) {
+        String[] data = record.split(",", 3);
+        try {
+            switch (data[0]) {
+                case "ADD" -> {
+                    super.addTask(TaskCsvFormatHandler.parseTask(data[2]));
+                    taskCounter.set(Math.max(taskCounter.get(), Integer.parseInt(data[1])));
                 }
+                case "UPDATE" -> super.update(TaskCsvFormatHandler.parseTask(data[1] + "," + data[2]));
+                case "REMOVE" -> super.removeTaskById(Integer.parseInt(data[1]));
+                case "CLEAR" -> super.removeAllTasks();
+                default -> System.out.println("Unknown journal record: " + record);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Skipping journal record " + record + ": " + e.getMessage());
+        }
+    }
+
+    private void startCompaction(Duration compactionInterval) {
+        if (compactionInterval == null) {
+            return;
+        }
+        compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = compactionInterval.toMillis();
+        compactionExecutor.scheduleWithFixedDelay(this::compact, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Writes the current state to the snapshot file and clears the journal.
+    public synchronized void compact() {
+        historyJournal.flush();
+        if (journal != null && journal.getRecordCount() > 0) {
+            save();
+            journal.reset();
+        }
+    }
+
+    // Flushes pending mutations, stops the background compaction and compacts the journal for the last time.
+    public void close() {
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
+        }
+        // Not synchronized on the manager: the final flush of the committer may need the manager's lock.
+        committer.close();
+        synchronized (this) {
+            compact();
+            if (journal != null) {
+                journal.close();
+            }
+            if (historyJournal.getRecordCount() > 0) {
+                compactHistory();
             }
+            historyJournal.close();
+        }
+    }
+
+    // Streams the tasks and the task ID counter from the snapshot file, detecting its format.
+    // The snapshot was validated when it was written, so its rows are bulk-inserted without overlap checks.
+    // CSV snapshots written before the counter was embedded continue the counter from the largest loaded ID.
+    private void loadFromFile() throws IOException {
+        int counter;
+        if (TaskBinaryFormatHandler.isBinarySnapshot(file)) {
+            counter = TaskBinaryFormatHandler.read(file, this::restoreTask);
         } else {
-            throw new ManagerLoadException("File " + file + " is empty");
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                counter = TaskCsvFormatHandler.read(reader, this::restoreTask);
+            }
+        }
+        completeRestore();
+        taskCounter.set(counter);
+    }
+
+    // Moves a snapshot that cannot be loaded to "<file>.corrupt", so the next save does not overwrite it,
+    // and starts with an empty board: the tasks restored before the error are dropped and the ID counter is reset.
+    // The journal and the history refer to the tasks of that snapshot, so they are moved aside as well.
+    private void setAsideUnreadableSnapshot(Exception e) {
+        System.out.println("Unable to load " + file + ": " + e.getMessage() + ". The file is moved to "
+                + file.getFileName() + ".corrupt and an empty board is started.");
+        super.removeAllTasks();
+        moveToCorrupt(file);
+        if (journal != null) {
+            moveToCorrupt(journal.getFile());
         }
+        moveToCorrupt(file.resolveSibling(file.getFileName() + ".history"));
     }
 
-    private int loadTaskCounterFromFile() {
+    private static void moveToCorrupt(Path source) {
         try {
-            if (Files.exists(taskCounterFile)) {
-                return Integer.parseInt(Files.readString(taskCounterFile));
-            } else {
-                Files.createFile(taskCounterFile);
-                return 0;
+            if (Files.exists(source)) {
+                Files.move(source, source.resolveSibling(source.getFileName() + ".corrupt"),
+                        StandardCopyOption.REPLACE_EXISTING);
             }
         } catch (IOException e) {
-            throw new ManagerLoadException("Error reading task counter file: " + e.getMessage());
+            throw new ManagerLoadException("Error moving " + source + " aside: " + e.getMessage());
         }
     }
 
     @Override
-    public void removeAllTasks() {
+    public synchronized void removeAllTasks() {
         super.removeAllTasks();
-        save();
-        saveTaskCounter();
+        appendHistoryRecord("*");
+        if (journal != null) {
+            journal.append("CLEAR");
+        }
+        committer.submit();
     }
 
     @Override
-    public void removeTaskById(int taskId) {
+    public synchronized void removeTaskById(int taskId) {
         super.removeTaskById(taskId);
-        save();
+        appendHistoryRecord("-" + taskId);
+        if (journal != null) {
+            journal.append("REMOVE," + taskId);
+        }
+        committer.submit();
     }
 
-    private void save() throws ManagerSaveException {
-        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
-            writer.write(TaskCsvFormatHandler.getHeader()); // Write CSV header
-            writer.newLine();
+    // Journals every removed task and submits the removal as a single mutation, so it is persisted once.
+    // Subtasks are journaled before their epic, so every record can be replayed.
+    @Override
+    public synchronized List<Integer> removeIf(Predicate<? super Task> filter) {
+        List<Integer> removedIds = super.removeIf(filter);
+        if (removedIds.isEmpty()) {
+            return removedIds;
+        }
+        for (int taskId : removedIds) {
+            appendHistoryRecord("-" + taskId);
+        }
+        if (journal != null) {
+            for (int taskId : removedIds) {
+                journal.append("REMOVE," + taskId);
+            }
+        }
+        committer.submit();
+        return removedIds;
+    }
 
+    // Writes the snapshot (tasks and the task ID counter) to a temporary file, syncs it to the storage device
+    // and atomically replaces the snapshot file with it, so a crash never leaves a partially written snapshot.
+    private void save() throws ManagerSaveException {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
             List<Task> allTasks = getAllTasks();
-            for (Task task : allTasks) {
-                writer.write(task.getDataForFileSaving());
-                writer.newLine();
+            if (snapshotFormat == SnapshotFormat.BINARY) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+                TaskBinaryFormatHandler.write(out, allTasks, taskCounter.get());
+                out.flush();
+            } else {
+                BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+                TaskCsvFormatHandler.write(writer, allTasks, taskCounter.get());
+                writer.flush();
             }
+            channel.force(true);
         } catch (IOException e) {
             throw new ManagerSaveException("Error: " + e.getMessage());
         }
+        replaceFile(tempFile, file);
     }
 
-    private void saveTaskCounter() {
+    private static void replaceFile(Path source, Path target) throws ManagerSaveException {
         try {
-            if (Files.notExists(taskCounterFile)) {
-                Files.createFile(taskCounterFile);
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
             }
-            Files.writeString(taskCounterFile, ((Integer) taskCounter).toString());
         } catch (IOException e) {
-            throw new ManagerSaveException("Error writing task counter file: " + e.getMessage());
+            throw new ManagerSaveException("Error replacing " + target + ": " + e.getMessage());
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    // Makes the rename durable. Not every platform allows opening a directory, so failures are ignored.
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // the rename itself has already been done
         }
     }
 
     @Override
-    public void update(Task task) {
+    public synchronized void update(Task task) {
         super.update(task);
-        save();
+        if (journal != null) {
+            journal.append("UPDATE," + task.getDataForFileSaving());
+        }
+        committer.submit();
     }
 }
\ No newline at end of file
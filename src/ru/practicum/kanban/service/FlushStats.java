@@ -0,0 +1,55 @@
+package ru.practicum.kanban.service;
+
+import java.time.Duration;
+
+// Snapshot of the group commit metrics: how many mutations were persisted by how many flushes.
+public class FlushStats {
+    private final long flushCount;
+    private final long flushedMutations;
+    private final long maxBatchSize;
+    private final long totalFlushNanos;
+    private final long maxFlushNanos;
+
+    public FlushStats(long flushCount, long flushedMutations, long maxBatchSize, long totalFlushNanos,
+                      long maxFlushNanos) {
+        this.flushCount = flushCount;
+        this.flushedMutations = flushedMutations;
+        this.maxBatchSize = maxBatchSize;
+        this.totalFlushNanos = totalFlushNanos;
+        this.maxFlushNanos = maxFlushNanos;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getFlushedMutations() {
+        return flushedMutations;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public double getAverageBatchSize() {
+        return flushCount == 0 ? 0 : (double) flushedMutations / flushCount;
+    }
+
+    public Duration getAverageFlushLatency() {
+        return Duration.ofNanos(flushCount == 0 ? 0 : totalFlushNanos / flushCount);
+    }
+
+    public Duration getMaxFlushLatency() {
+        return Duration.ofNanos(maxFlushNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "flushes=" + flushCount +
+                ", mutations=" + flushedMutations +
+                ", averageBatchSize=" + getAverageBatchSize() +
+                ", maxBatchSize=" + maxBatchSize +
+                ", averageFlushLatency=" + getAverageFlushLatency() +
+                ", maxFlushLatency=" + getMaxFlushLatency();
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.kanban.service;
+
+import java.time.Duration;
+
+// Coalesces persistence of mutations into batches ("group commit").
+// Every mutation is submitted and gets a sequence number; one flush makes all mutations submitted
+// before it durable. With an empty flush window every submit is flushed immediately in the caller's thread.
+// Otherwise a background thread flushes once the window after the first pending mutation has passed
+// or maxBatchSize mutations are pending, whichever comes first.
+public class GroupCommitter {
+    private final Runnable flushAction;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Thread flusher;
+    private long submitted;
+    private long flushed;
+    private boolean closed;
+
+    private long flushCount;
+    private long flushedMutations;
+    private long maxFlushedBatch;
+    private long totalFlushNanos;
+    private long maxFlushNanos;
+
+    public GroupCommitter(Runnable flushAction, Duration flushWindow, int maxBatchSize) {
+        this.flushAction = flushAction;
+        this.windowNanos = flushWindow == null ? 0 : flushWindow.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        if (windowNanos > 0) {
+            flusher = new Thread(this::runFlusher, "group-commit-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    // Registers a mutation that has to be persisted and returns its sequence number.
+    public long submit() {
+        long sequence;
+        synchronized (this) {
+            sequence = ++submitted;
+            notifyAll();
+        }
+        if (flusher == null) {
+            flush(sequence);
+        }
+        return sequence;
+    }
+
+    // Blocks until the mutation with the given sequence number has been flushed.
+    public synchronized void awaitFlushed(long sequence) throws InterruptedException {
+        while (flushed < sequence && !closed) {
+            wait();
+        }
+    }
+
+    // Blocks until every mutation submitted so far has been flushed.
+    public void awaitFlushed() throws InterruptedException {
+        long sequence;
+        synchronized (this) {
+            sequence = submitted;
+        }
+        awaitFlushed(sequence);
+    }
+
+    public synchronized FlushStats getStats() {
+        return new FlushStats(flushCount, flushedMutations, maxFlushedBatch, totalFlushNanos, maxFlushNanos);
+    }
+
+    // Flushes the pending mutations and stops the background thread.
+    public void close() {
+        long sequence;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sequence = submitted;
+            notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        boolean pending;
+        synchronized (this) {
+            pending = flushed < sequence;
+        }
+        if (pending) {
+            flush(sequence);
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            long target;
+            synchronized (this) {
+                try {
+                    while (submitted == flushed && !closed) {
+                        wait();
+                    }
+                    // Collect more mutations until the window is over or the batch is full.
+                    long deadline = System.nanoTime() + windowNanos;
+                    long remaining = windowNanos;
+                    while (!closed && remaining > 0 && submitted - flushed < maxBatchSize) {
+                        wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                        remaining = deadline - System.nanoTime();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+                target = submitted;
+            }
+            // The flush itself runs without holding this lock, so mutations can be submitted meanwhile.
+            try {
+                flush(target);
+            } catch (RuntimeException e) {
+                // The mutations stay pending and are retried with the next batch.
+                System.out.println("Flush failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void flush(long target) {
+        long start = System.nanoTime();
+        flushAction.run();
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            if (target > flushed) {
+                long batchSize = target - flushed;
+                flushed = target;
+                flushCount++;
+                flushedMutations += batchSize;
+                maxFlushedBatch = Math.max(maxFlushedBatch, batchSize);
+                totalFlushNanos += elapsed;
+                maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+            }
+            notifyAll();
+        }
+    }
+}
@@ -9,7 +9,71 @@ public interface HistoryManager {
 
     List<Task> getHistory();
 
+    // Returns the last limit entries of the history, in the same order as getHistory().
+    default List<Task> getRecentHistory(int limit) {
+        List<Task> history = getHistory();
+        return history.subList(Math.max(0, history.size() - limit), history.size());
+    }
+
     void remove(int id);
 
     void removeAll();
+
+    // Changes with every change of the history, including evictions, and never repeats: the versions come from
+    // one sequence shared by all histories, so a version identifies the content it was read with.
+    // An empty history that has never changed has version 0.
+    long getVersion();
+
+    // Per-client history, see PartitionedHistoryManager. A null clientId stands for the shared history.
+    // History managers without partitions keep one history for all clients.
+    default void addTask(String clientId, Task task) {
+        addTask(task);
+    }
+
+    default List<Task> getHistory(String clientId) {
+        return getHistory();
+    }
+
+    default List<Task> getRecentHistory(String clientId, int limit) {
+        return getRecentHistory(limit);
+    }
+
+    default long getVersion(String clientId) {
+        return getVersion();
+    }
+
+    // The current time by the clock the history stamps views with and measures the age of its entries by.
+    default long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    // Adds the task as viewed at viewedAt (epoch milliseconds) rather than now, e.g. to restore a persisted history.
+    // The entry is evicted at once if it is older than the age limit of the history.
+    // History managers without view times add the task as viewed now.
+    default void addTask(Task task, long viewedAt) {
+        addTask(task);
+    }
+
+    default void addTask(String clientId, Task task, long viewedAt) {
+        addTask(task, viewedAt);
+    }
+
+    // The entries of getHistory() with their view times, e.g. to persist the history.
+    // History managers without view times report every entry as viewed now.
+    default List<Entry> getEntries() {
+        long now = System.currentTimeMillis();
+        return getHistory().stream().map(task -> new Entry(task, now)).toList();
+    }
+
+    default List<Entry> getEntries(String clientId) {
+        return getEntries();
+    }
+
+    // The clients that have their own history, from the least to the most recently used one.
+    default List<String> getClientIds() {
+        return List.of();
+    }
+
+    record Entry(Task task, long viewedAt) {
+    }
 }
@@ -2,19 +2,93 @@ package ru.practicum.kanban.service;
 
 import ru.practicum.kanban.model.Task;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class InMemoryHistoryManager implements HistoryManager {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     private final CustomLinkedList history = new CustomLinkedList();
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final Clock clock;
+    // The last list returned by getHistory() and the version of the history it was built from.
+    private List<Task> snapshot;
+    private long snapshotVersion = -1;
+
+    // Keeps every viewed task until it is removed.
+    public InMemoryHistoryManager() {
+        this(Integer.MAX_VALUE, null, Clock.systemUTC());
+    }
+
+    // Keeps at most maxEntries tasks, each viewed no longer than maxAge ago (null for no age limit).
+    public InMemoryHistoryManager(int maxEntries, Duration maxAge) {
+        this(maxEntries, maxAge, Clock.systemUTC());
+    }
+
+    public InMemoryHistoryManager(int maxEntries, Duration maxAge, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The history capacity must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
 
     @Override
     public void addTask(Task task) {
-        history.linkLast(task);
+        history.linkLast(task, clock.millis());
+        evict();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return clock.millis();
+    }
+
+    // The entries are kept ordered by view time, so a view older than the last one is moved up to its time.
+    @Override
+    public void addTask(Task task, long viewedAt) {
+        history.linkLast(task, history.size() == 0 ? viewedAt : Math.max(viewedAt, history.getLastTimestamp()));
+        evict();
+    }
+
+    @Override
+    public List<Entry> getEntries() {
+        evict();
+        return history.entries();
     }
 
+    // Returns an immutable list, which is rebuilt only if the history has changed since the previous call.
     @Override
     public List<Task> getHistory() {
-        return history.asList();
+        evict();
+        if (snapshotVersion != history.getVersion()) {
+            snapshot = Collections.unmodifiableList(history.asList());
+            snapshotVersion = history.getVersion();
+        }
+        return snapshot;
+    }
+
+    @Override
+    public List<Task> getRecentHistory(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative: " + limit);
+        }
+        evict();
+        if (snapshotVersion == history.getVersion()) {
+            return snapshot.subList(Math.max(0, snapshot.size() - limit), snapshot.size());
+        }
+        return history.lastEntries(limit);
+    }
+
+    // Evicts the expired entries first, so the version changes once they expire even without other changes.
+    @Override
+    public long getVersion() {
+        evict();
+        return history.getVersion();
     }
 
     @Override
@@ -27,69 +101,178 @@ public class InMemoryHistoryManager implements HistoryManager {
         history.removeAllNodes();
     }
 
+    // The list is ordered by view time, so the entries over the capacity and the expired ones are at its head
+    // and each of them is evicted in O(1). Expired entries are evicted on every read and write.
+    private void evict() {
+        while (history.size() > maxEntries) {
+            history.removeFirst();
+        }
+        if (maxAge != null) {
+            long oldestTimestamp = clock.millis() - maxAge.toMillis();
+            while (history.size() > 0 && history.getFirstTimestamp() < oldestTimestamp) {
+                history.removeFirst();
+            }
+        }
+    }
+
+    // Doubly-linked list of viewed tasks stored in parallel arrays: an entry is a slot index, and prev/next
+    // hold the neighbouring slots (NONE at the ends). Slots of removed entries are chained into a free list
+    // and reused, so adding, removing and moving an entry to the tail are O(1) and allocate no nodes.
+    // The arrays only grow when every slot is in use. The version changes with the order or the content of the list
+    // and is taken from the shared sequence, see HistoryManager.getVersion().
     class CustomLinkedList {
-        private Node<Task> head;
-        private Node<Task> tail;
+        private static final int NONE = -1;
+        private static final int INITIAL_CAPACITY = 16;
+
+        private Task[] tasks = new Task[INITIAL_CAPACITY];
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private int[] prev = new int[INITIAL_CAPACITY];
+        private int[] next = new int[INITIAL_CAPACITY];
+        private int head = NONE;
+        private int tail = NONE;
+        // First slot of the free list (chained through next) and the number of slots ever used.
+        private int freeSlot = NONE;
+        private int usedSlots;
+        private long version;
 
-        Map<Integer, Node<Task>> nodesId = new HashMap<>();
+        private final Map<Integer, Integer> slotsByTaskId = new HashMap<>();
 
         public List<Task> asList() {
-            List<Task> arrayList = new ArrayList<>();
-            Node<Task> current = head;
-            while (current != null) {
-                arrayList.add(current.getData());
-                current = current.getNext();
+            List<Task> arrayList = new ArrayList<>(slotsByTaskId.size());
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                arrayList.add(tasks[slot]);
             }
             return arrayList;
         }
 
-        public void linkLast(Task task) {
-            if (nodesId.containsKey(task.getTaskId())) {
-                removeNode(nodesId.get(task.getTaskId()));
+        public List<Entry> entries() {
+            List<Entry> entries = new ArrayList<>(slotsByTaskId.size());
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                entries.add(new Entry(tasks[slot], timestamps[slot]));
+            }
+            return entries;
+        }
+
+        // Walks only the last limit entries from the tail.
+        public List<Task> lastEntries(int limit) {
+            Task[] entries = new Task[Math.min(limit, size())];
+            int slot = tail;
+            for (int i = entries.length - 1; i >= 0; i--) {
+                entries[i] = tasks[slot];
+                slot = prev[slot];
             }
+            return Collections.unmodifiableList(Arrays.asList(entries));
+        }
 
-            final Node<Task> oldTail = tail;
-            final Node<Task> newNode = new Node<>(oldTail, task, null);
-            tail = newNode;
-            if (oldTail == null) {
-                head = newNode;
+        // Appends the task, or moves it to the tail if it is already in the list.
+        public void linkLast(Task task, long timestamp) {
+            Integer slot = slotsByTaskId.get(task.getTaskId());
+            if (slot != null && slot == tail && tasks[slot] == task) {
+                // Viewing the last viewed task again only refreshes its timestamp.
+                timestamps[slot] = timestamp;
+                return;
+            }
+            version = VERSIONS.incrementAndGet();
+            if (slot != null) {
+                unlink(slot);
             } else {
-                oldTail.setNext(newNode);
+                slot = allocateSlot();
+                slotsByTaskId.put(task.getTaskId(), slot);
             }
+            tasks[slot] = task;
+            timestamps[slot] = timestamp;
+            prev[slot] = tail;
+            next[slot] = NONE;
+            if (tail == NONE) {
+                head = slot;
+            } else {
+                next[tail] = slot;
+            }
+            tail = slot;
+        }
 
-            nodesId.put(task.getTaskId(), newNode);
+        public int size() {
+            return slotsByTaskId.size();
         }
 
-        public void removeAllNodes() {
-            for (Node<Task> node : nodesId.values()) {
-                removeNode(node);
+        public long getVersion() {
+            return version;
+        }
+
+        public long getFirstTimestamp() {
+            return timestamps[head];
+        }
+
+        public long getLastTimestamp() {
+            return timestamps[tail];
+        }
+
+        public void removeFirst() {
+            if (head != NONE) {
+                removeSlot(head);
             }
-            nodesId.clear();
+        }
+
+        // Drops the arrays instead of clearing them slot by slot.
+        public void removeAllNodes() {
+            tasks = new Task[INITIAL_CAPACITY];
+            timestamps = new long[INITIAL_CAPACITY];
+            prev = new int[INITIAL_CAPACITY];
+            next = new int[INITIAL_CAPACITY];
+            head = NONE;
+            tail = NONE;
+            freeSlot = NONE;
+            usedSlots = 0;
+            slotsByTaskId.clear();
+            version = VERSIONS.incrementAndGet();
         }
 
         public void removeNodeById(int id) {
-            removeNode(nodesId.get(id));
+            Integer slot = slotsByTaskId.get(id);
+            if (slot != null) {
+                removeSlot(slot);
+            }
         }
 
-        public void removeNode(Node<Task> node) {
-            if (node != null) {
-                Node<Task> prev = node.getPrev();
-                Node<Task> next = node.getNext();
+        // Unlinks the entry, releases its task and returns the slot to the free list.
+        private void removeSlot(int slot) {
+            version = VERSIONS.incrementAndGet();
+            unlink(slot);
+            slotsByTaskId.remove(tasks[slot].getTaskId());
+            tasks[slot] = null;
+            next[slot] = freeSlot;
+            freeSlot = slot;
+        }
 
-                if (prev == null) {
-                    head = next;
-                } else {
-                    prev.setNext(next);
-                }
+        private void unlink(int slot) {
+            int prevSlot = prev[slot];
+            int nextSlot = next[slot];
+            if (prevSlot == NONE) {
+                head = nextSlot;
+            } else {
+                next[prevSlot] = nextSlot;
+            }
+            if (nextSlot == NONE) {
+                tail = prevSlot;
+            } else {
+                prev[nextSlot] = prevSlot;
+            }
+        }
 
-                if (next == null) {
-                    tail = prev;
-                } else {
-                    next.setPrev(prev);
-                }
+        private int allocateSlot() {
+            if (freeSlot != NONE) {
+                int slot = freeSlot;
+                freeSlot = next[slot];
+                return slot;
             }
+            if (usedSlots == tasks.length) {
+                int capacity = tasks.length * 2;
+                tasks = Arrays.copyOf(tasks, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                prev = Arrays.copyOf(prev, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            return usedSlots++;
         }
     }
 }
-
-
@@ -2,6 +2,7 @@ package ru.practicum.kanban.service;
 
 import ru.practicum.kanban.exceptions.TaskIsOverlapException;
 import ru.practicum.kanban.model.enums.TaskStatus;
+import ru.practicum.kanban.model.enums.TaskType;
 import ru.practicum.kanban.model.Epic;
 import ru.practicum.kanban.model.SubTask;
 import ru.practicum.kanban.model.Task;
@@ -11,30 +12,99 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.NoSuchElementException;
 import java.util.List;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
 
-    private final Map<Integer, Task> tasks;
-    private final Map<Integer, Epic> epics;
-    private final Map<Integer, SubTask> subTasks;
+    private final NavigableMap<Integer, Task> tasks;
+    private final NavigableMap<Integer, Epic> epics;
+    private final NavigableMap<Integer, SubTask> subTasks;
+    private final Map<Integer, Set<Integer>> subTaskIdsByEpicId;
     private final Set<Task> prioritizedTasks;
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
-    public static int taskCounter;
+    private final TimeIntervalIndex prioritizedIntervals;
+    private final Map<Integer, TimeIntervalIndex> subTaskIntervals;
+    private final TaskQueryIndex queryIndex;
+    private final HistoryManager historyManager;
+    private final AtomicLong version = new AtomicLong();
+    private final Map<TaskType, AtomicLong> versions = new EnumMap<>(TaskType.class);
+    static final AtomicInteger taskCounter = new AtomicInteger();
+    private boolean applyingValidatedBatch;
+    private final boolean threadSafe;
 
     public InMemoryTaskManager() {
-        tasks = new HashMap<>();
-        epics = new HashMap<>();
-        subTasks = new HashMap<>();
-        prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime));
-        taskCounter = 0;
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, false);
+    }
+
+    // With threadSafe the collections read by the getters are concurrent ones, so reads need no locking,
+    // and the history manager is wrapped into a ConcurrentHistoryManager. The subclass must still serialize
+    // the mutating methods, see ConcurrentTaskManager.
+    protected InMemoryTaskManager(HistoryManager historyManager, boolean threadSafe) {
+        this.threadSafe = threadSafe;
+        tasks = createMap();
+        epics = createMap();
+        subTasks = createMap();
+        subTaskIdsByEpicId = createMap();
+        prioritizedTasks = createPrioritizedSet(
+                Comparator.comparing(Task::getStartTime).thenComparing(Task::getTaskId));
+        // The interval indexes are only used by mutating methods, so they are never shared with readers.
+        prioritizedIntervals = new TimeIntervalIndex();
+        subTaskIntervals = new HashMap<>();
+        queryIndex = new TaskQueryIndex();
+        this.historyManager = threadSafe ? new ConcurrentHistoryManager(historyManager) : historyManager;
+        for (TaskType taskType : TaskType.values()) {
+            versions.put(taskType, new AtomicLong());
+        }
+        taskCounter.set(0);
+    }
+
+    // Factories for the collections that are read by the getters.
+    // Maps are ordered by ID: task IDs only grow, so paging by the last seen ID is stable across inserts.
+    private <V> NavigableMap<Integer, V> createMap() {
+        return threadSafe ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+    }
+
+    private Set<Integer> createIdSet() {
+        return threadSafe ? new ConcurrentSkipListSet<>() : new LinkedHashSet<>();
+    }
+
+    private Set<Task> createPrioritizedSet(Comparator<Task> comparator) {
+        return threadSafe ? new ConcurrentSkipListSet<>(comparator) : new TreeSet<>(comparator);
+    }
+
+    protected HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    // Adds the task to the history of the client as viewed at viewedAt, without a view,
+    // e.g. to restore a persisted history. Unknown IDs are ignored.
+    protected void restoreView(String clientId, int taskId, long viewedAt) {
+        Task task = findTask(taskId);
+        if (task != null) {
+            historyManager.addTask(clientId, task, viewedAt);
+        }
     }
 
     // Adds a task to the corresponding collection.
@@ -44,6 +114,11 @@ public class InMemoryTaskManager implements TaskManager {
     // For regular tasks, it performs an overlap check and then adds the task.
     @Override
     public void addTask(Task task) {
+        insertTask(task);
+        modified(task.getTaskType());
+    }
+
+    private void insertTask(Task task) {
         switch (task) {
             case null -> throw new NoSuchElementException("The task cannot be null");
             case Epic epic -> {
@@ -52,8 +127,10 @@ public class InMemoryTaskManager implements TaskManager {
                     throw new TaskIsOverlapException(
                             "The added task " + task.getName() + " overlaps the existing task!");
                 } else {
-                    epics.put(task.getTaskId(), epic);
-                    addPrioritizedTasks(task);
+                    // The index entry is created first, so a reader that sees the epic can list its subtasks.
+                    subTaskIdsByEpicId.computeIfAbsent(task.getTaskId(), id -> createIdSet());
+                    putIndexed(epics, copyEpic(epic, epic.getTaskStatus()));
+                    addPrioritizedTasks(epics.get(epic.getTaskId()));
                 }
             }
             case SubTask subTask -> {
@@ -63,9 +140,10 @@ public class InMemoryTaskManager implements TaskManager {
                         throw new TaskIsOverlapException(
                                 "The added task " + task.getName() + " overlaps the existing task!");
                     } else {
-                        Epic epic = epics.get(epicId);
-                        epic.addSubTaskId(task.getTaskId());
-                        subTasks.put(task.getTaskId(), (SubTask) task);
+                        putIndexed(subTasks, subTask);
+                        subTaskIdsByEpicId.get(epicId).add(task.getTaskId());
+                        subTaskIntervals.computeIfAbsent(epicId, id -> new TimeIntervalIndex()).add(task);
+                        refreshSubTaskIds(epicId);
                         setEpicDateTime(epicId);
                     }
                 } else {
@@ -77,17 +155,186 @@ public class InMemoryTaskManager implements TaskManager {
                     throw new TaskIsOverlapException(
                             "The added task " + task.getName() + " overlaps the existing task!");
                 } else {
-                    tasks.put(task.getTaskId(), task);
+                    putIndexed(tasks, task);
                     addPrioritizedTasks(task);
                 }
             }
         }
     }
 
-    // Adds a task to the prioritized set if it has a specified startTime and duration.
+    @Override
+    public List<BatchResult> addTasks(Collection<? extends Task> batch) {
+        return applyBatch(batch, false);
+    }
+
+    @Override
+    public List<BatchResult> updateAll(Collection<? extends Task> batch) {
+        return applyBatch(batch, true);
+    }
+
+    // Validates the whole batch in one pass and, if every task is valid, adds or updates the tasks one by one
+// without repeating the overlap checks. Versions are incremented once for the whole batch.
+    private List<BatchResult> applyBatch(Collection<? extends Task> batch, boolean updateOnly) {
+        List<Task> items = new ArrayList<>(batch);
+        List<String> errors = validateBatch(items, updateOnly);
+        List<BatchResult> results = new ArrayList<>(items.size());
+        if (errors.stream().anyMatch(Objects::nonNull)) {
+            for (int i = 0; i < items.size(); i++) {
+                int taskId = items.get(i) == null ? 0 : items.get(i).getTaskId();
+                results.add(errors.get(i) != null
+                        ? new BatchResult(taskId, BatchResult.Status.REJECTED, errors.get(i))
+                        : new BatchResult(taskId, BatchResult.Status.NOT_APPLIED, null));
+            }
+            return results;
+        }
+
+        Set<TaskType> modifiedTypes = EnumSet.noneOf(TaskType.class);
+        applyingValidatedBatch = true;
+        try {
+            for (Task task : items) {
+                if (isExist(task)) {
+                    replaceTask(task);
+                    results.add(new BatchResult(task.getTaskId(), BatchResult.Status.UPDATED, null));
+                } else {
+                    insertTask(task);
+                    results.add(new BatchResult(task.getTaskId(), BatchResult.Status.ADDED, null));
+                }
+                modifiedTypes.add(task.getTaskType());
+            }
+        } finally {
+            applyingValidatedBatch = false;
+            if (!modifiedTypes.isEmpty()) {
+                modified(modifiedTypes.toArray(new TaskType[0]));
+            }
+        }
+        return results;
+    }
+
+    // Returns the error of every task of the batch, or null for a valid task.
+// Every task is checked against the board and against the valid tasks before it in the batch:
+// subtasks need an existing epic or an epic earlier in the batch, and intervals must not overlap.
+// The current intervals of the tasks that the batch updates are ignored, because the batch replaces them.
+    private List<String> validateBatch(List<Task> batch, boolean updateOnly) {
+        Set<Integer> batchIds = new HashSet<>();
+        for (Task task : batch) {
+            if (task != null) {
+                batchIds.add(task.getTaskId());
+            }
+        }
+        Set<Integer> validIds = new HashSet<>();
+        Set<Integer> batchEpicIds = new HashSet<>();
+        TimeIntervalIndex batchIntervals = new TimeIntervalIndex();
+        Map<Integer, TimeIntervalIndex> batchSubTaskIntervals = new HashMap<>();
+
+        List<String> errors = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            String error = null;
+            if (task == null) {
+                error = "The task cannot be null";
+            } else if (validIds.contains(task.getTaskId())) {
+                error = "The task with ID " + task.getTaskId() + " occurs in the batch more than once.";
+            } else if (!isExist(task) && (tasks.containsKey(task.getTaskId()) || epics.containsKey(task.getTaskId())
+                    || subTasks.containsKey(task.getTaskId()))) {
+                error = "A task of another type with ID " + task.getTaskId() + " already exists.";
+            } else if (updateOnly && !isExist(task)) {
+                error = "Unable to update task: the task with this ID does not exist.";
+            } else if (task instanceof SubTask subTask && !epics.containsKey(subTask.getEpicId())
+                    && !batchEpicIds.contains(subTask.getEpicId())) {
+                error = "Unable to add subtask: an epic with this ID does not exist.";
+            } else {
+                boolean isSubTask = task instanceof SubTask;
+                int epicId = isSubTask ? ((SubTask) task).getEpicId() : 0;
+                TimeIntervalIndex existing = isSubTask ? subTaskIntervals.get(epicId) : prioritizedIntervals;
+                TimeIntervalIndex added = isSubTask
+                        ? batchSubTaskIntervals.computeIfAbsent(epicId, id -> new TimeIntervalIndex())
+                        : batchIntervals;
+                LocalDateTime start = task.getStartTime();
+                LocalDateTime end = task.getEndTime();
+                if (start != null && end != null
+                        && ((existing != null && !existing.contains(task.getTaskId(), start, end)
+                        && existing.overlaps(start, end, batchIds::contains))
+                        || added.overlaps(start, end, task.getTaskId()))) {
+                    error = "The task " + task.getName() + " overlaps the existing task!";
+                } else {
+                    added.add(task);
+                }
+            }
+            if (error == null) {
+                validIds.add(task.getTaskId());
+                if (task instanceof Epic) {
+                    batchEpicIds.add(task.getTaskId());
+                }
+            }
+            errors.add(error);
+        }
+        return errors;
+    }
+
+    // Bulk-inserts a task from a trusted source, e.g. a snapshot written by this manager,
+    // without the overlap check and without recalculating epics: their stored time is already final.
+    // Epics must be restored before their subtasks; completeRestore() must be called after the last task.
+    protected void restoreTask(Task task) {
+        switch (task) {
+            case Epic epic -> {
+                subTaskIdsByEpicId.computeIfAbsent(epic.getTaskId(), id -> createIdSet());
+                putIndexed(epics, copyEpic(epic, epic.getTaskStatus()));
+                addPrioritizedTasks(epics.get(epic.getTaskId()));
+            }
+            case SubTask subTask -> {
+                int epicId = subTask.getEpicId();
+                Set<Integer> subTaskIds = subTaskIdsByEpicId.get(epicId);
+                if (subTaskIds == null) {
+                    throw new NoSuchElementException("Unable to add subtask: an epic with this ID does not exist.");
+                }
+                putIndexed(subTasks, subTask);
+                subTaskIds.add(subTask.getTaskId());
+                subTaskIntervals.computeIfAbsent(epicId, id -> new TimeIntervalIndex()).add(subTask);
+            }
+            default -> {
+                putIndexed(tasks, task);
+                addPrioritizedTasks(task);
+            }
+        }
+    }
+
+    // Attaches the restored subtask IDs to their epics once, instead of copying them per restored subtask.
+    protected void completeRestore() {
+        for (int epicId : new ArrayList<>(epics.keySet())) {
+            if (!subTaskIdsByEpicId.get(epicId).isEmpty()) {
+                refreshSubTaskIds(epicId);
+            }
+        }
+    }
+
+    // Every task is put into and removed from the maps through these methods, so the query index follows them.
+    private <T extends Task> void putIndexed(Map<Integer, T> map, T task) {
+        queryIndex.replace(map.put(task.getTaskId(), task), task);
+    }
+
+    private <T extends Task> T removeIndexed(Map<Integer, T> map, int taskId) {
+        T task = map.remove(taskId);
+        if (task != null) {
+            queryIndex.remove(task);
+        }
+        return task;
+    }
+
+    // Adds a task to the prioritized set and the interval index if it has a specified startTime and duration.
     private void addPrioritizedTasks(Task task) {
         if (task.getStartTime() != null && task.getDuration() != null) {
             prioritizedTasks.add(task);
+            prioritizedIntervals.add(task);
+        }
+    }
+
+    // Removes a task from the prioritized set and the interval index.
+    // Tasks without a startTime were never added and cannot be passed to the set's comparator.
+    private void removePrioritizedTasks(Task task) {
+        if (task != null) {
+            if (task.getStartTime() != null) {
+                prioritizedTasks.remove(task);
+            }
+            prioritizedIntervals.remove(task.getTaskId());
         }
     }
 
@@ -103,11 +350,59 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(epics.values());
     }
 
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public long getVersion(TaskType taskType) {
+        return versions.get(taskType).get();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return historyManager.getVersion();
+    }
+
+    @Override
+    public long getHistoryVersion(String clientId) {
+        return historyManager.getVersion(clientId);
+    }
+
+    // Called after every successful mutation, once the new state is visible to readers,
+    // so a reader that saw the old version can never pair it with the new state.
+    // Changes of subtasks also change their epics (subtask IDs, status, time).
+    private void modified(TaskType... taskTypes) {
+        for (TaskType taskType : taskTypes) {
+            versions.get(taskType).incrementAndGet();
+            if (taskType == TaskType.SUBTASK) {
+                versions.get(TaskType.EPIC).incrementAndGet();
+            }
+        }
+        version.incrementAndGet();
+    }
+
     @Override
     public List<Task> getHistory() {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(String clientId) {
+        return historyManager.getHistory(clientId);
+    }
+
+    @Override
+    public List<Task> getRecentHistory(String clientId, int limit) {
+        return historyManager.getRecentHistory(clientId, limit);
+    }
+
     public Set<Task> getPrioritizedTasks() {
         return prioritizedTasks;
     }
@@ -117,34 +412,118 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(subTasks.values());
     }
 
+    // Resolves the epic's subtasks through the epicId -> subtask IDs index,
+// so the lookup is proportional to the number of the epic's subtasks.
     @Override
     public List<Task> getSubTasksByEpicId(int epicId) {
-        if (epics.containsKey(epicId)) {
-        return new ArrayList<>(subTasks.values().stream()
-                .filter(subTask -> subTask.getEpicId() == epicId)
-                .toList());
-        } else {
+        Set<Integer> subTaskIds = subTaskIdsByEpicId.get(epicId);
+        if (subTaskIds == null) {
             throw new NoSuchElementException("Epic doesn't exist");
         }
+        List<Task> epicSubTasks = new ArrayList<>();
+        for (int subTaskId : subTaskIds) {
+            SubTask subTask = subTasks.get(subTaskId);
+            if (subTask != null) {
+                epicSubTasks.add(subTask);
+            }
+        }
+        return epicSubTasks;
+    }
+
+    // Returns up to limit tasks of the type with IDs greater than afterId, in ascending ID order.
+    // Only the returned tasks are copied, and a task added while a client pages through the collection
+    // always gets a greater ID, so it never shifts the following pages.
+    @Override
+    public List<Task> getPage(TaskType taskType, int afterId, int limit) {
+        List<Task> page = new ArrayList<>();
+        for (Task task : getMap(taskType).tailMap(afterId, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(task);
+        }
+        return page;
+    }
+
+    // Returns the tasks matching the filter in ascending ID order, without adding them to the history.
+// The candidates come from the most specific index for the filter: its task IDs, the subtask IDs of its epic,
+// or the status and start time indexes; only the candidates are checked against the whole filter.
+// Without any of these criteria every task of the filter's types is checked.
+    @Override
+    public List<Task> query(TaskFilter filter) {
+        Collection<TaskType> taskTypes = filter.getTaskTypes() != null
+                ? filter.getTaskTypes()
+                : List.of(TaskType.values());
+        List<Integer> candidateIds = new ArrayList<>();
+        if (filter.getTaskIds() != null) {
+            candidateIds.addAll(filter.getTaskIds());
+        } else if (filter.getEpicId() != null) {
+            candidateIds.addAll(subTaskIdsByEpicId.getOrDefault(filter.getEpicId(), Set.of()));
+        } else {
+            for (TaskType taskType : taskTypes) {
+                Collection<Integer> ids = queryIndex.findCandidates(taskType, filter.getTaskStatuses(),
+                        filter.getStartFrom(), filter.getStartTo());
+                candidateIds.addAll(ids != null ? ids : getMap(taskType).keySet());
+            }
+        }
+        candidateIds.sort(null);
+
+        List<Task> result = new ArrayList<>();
+        for (int taskId : candidateIds) {
+            Task task = findTask(taskId);
+            if (task != null && filter.test(task)) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    private NavigableMap<Integer, ? extends Task> getMap(TaskType taskType) {
+        return switch (taskType) {
+            case TASK -> tasks;
+            case EPIC -> epics;
+            case SUBTASK -> subTasks;
+        };
     }
 
     // Retrieves a task by its ID, adds it to the history, and returns the task.
     // If the task is not found, it throws an exception.
     @Override
     public Task getTaskById(int taskId) {
-        if (tasks.containsKey(taskId)) {
-            historyManager.addTask(tasks.get(taskId));
-            return tasks.get(taskId);
+        return getTaskById(taskId, null);
+    }
 
-        } else if (epics.containsKey(taskId)) {
-            historyManager.addTask(epics.get(taskId));
-            return epics.get(taskId);
+    @Override
+    public Task getTaskById(int taskId, String clientId) {
+        Task task = findTask(taskId);
+        if (task == null) {
+            throw new NoSuchElementException("Task with ID " + taskId + " not found.");
+        }
+        addView(clientId, task, historyManager.currentTimeMillis());
+        return task;
+    }
 
-        } else if (subTasks.containsKey(taskId)) {
-            historyManager.addTask(subTasks.get(taskId));
-            return subTasks.get(taskId);
+    // Adds the view to the history. Getting a task is not locked, so in a thread-safe manager the task may be
+    // removed after it was found and before its view reaches the history. Every removal takes the task off the board
+    // before removing it from the history, so the view is removed again here if the task is already gone,
+    // and by the removal itself otherwise.
+    protected void addView(String clientId, Task task, long viewedAt) {
+        historyManager.addTask(clientId, task, viewedAt);
+        if (threadSafe && findTask(task.getTaskId()) == null) {
+            historyManager.remove(task.getTaskId());
         }
-        throw new NoSuchElementException("Task with ID " + taskId + " not found.");
+    }
+
+    // Returns the task, epic or subtask with the ID without adding it to the history, or null.
+    protected Task findTask(int taskId) {
+        Task task = tasks.get(taskId);
+        if (task == null) {
+            task = epics.get(taskId);
+        }
+        if (task == null) {
+            task = subTasks.get(taskId);
+        }
+        return task;
     }
 
     public List<Task> getTasks() {
@@ -164,19 +543,14 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     // Checks whether the given task (or its corresponding subtask within an epic)
-// already exists in the prioritizedTasks set with the same ID, startTime, and duration.
+// is already indexed with the same ID, startTime, and duration.
     private boolean isExistInPrioritizedTasks(Task task) {
         if (task instanceof SubTask subTask) {
-            return getSubTasksByEpicId(subTask.getEpicId()).stream()
-                    .anyMatch(existingTask ->
-                            existingTask.getTaskId() == subTask.getTaskId()
-                                    && existingTask.getStartTime().equals(subTask.getStartTime())
-                                    && existingTask.getDuration().equals(subTask.getDuration()));
+            TimeIntervalIndex siblings = subTaskIntervals.get(subTask.getEpicId());
+            return siblings != null
+                    && siblings.contains(subTask.getTaskId(), subTask.getStartTime(), subTask.getEndTime());
         }
-        return prioritizedTasks.stream()
-                .anyMatch(existingTask -> existingTask.getTaskId() == task.getTaskId()
-                        && existingTask.getStartTime().equals(task.getStartTime())
-                        && existingTask.getDuration().equals(task.getDuration()));
+        return prioritizedIntervals.contains(task.getTaskId(), task.getStartTime(), task.getEndTime());
     }
 
     // Removes all tasks: clears the tasks, epics, subTasks, and prioritizedTasks collections, and clears the history.
@@ -185,123 +559,222 @@ public class InMemoryTaskManager implements TaskManager {
         tasks.clear();
         epics.clear();
         subTasks.clear();
+        queryIndex.clear();
+        subTaskIdsByEpicId.clear();
         historyManager.removeAll();
         prioritizedTasks.clear();
-        taskCounter = 0;
+        prioritizedIntervals.clear();
+        subTaskIntervals.clear();
+        taskCounter.set(0);
+        modified(TaskType.values());
     }
 
     // Removes a task by its ID.
-// For epics, all subtasks are removed first.
+// For epics, all subtasks are removed as well.
 // Also removes the task from the history.
     @Override
     public void removeTaskById(int taskId) {
         if (tasks.containsKey(taskId)) {
-            tasks.remove(taskId);
+            removePrioritizedTasks(removeIndexed(tasks, taskId));
             historyManager.remove(taskId);
+            modified(TaskType.TASK);
         } else if (epics.containsKey(taskId)) {
-            // Remove the epic's subtasks before removing the epic.
-            epics.get(taskId).getSubTasksIds().forEach(this::removeTaskById);
+            // The epic is removed first, so removing its subtasks one by one does not recalculate it.
+            removePrioritizedTasks(removeIndexed(epics, taskId));
+            new ArrayList<>(subTaskIdsByEpicId.get(taskId)).forEach(this::removeTaskById);
 
-            epics.remove(taskId);
+            subTaskIdsByEpicId.remove(taskId);
+            subTaskIntervals.remove(taskId);
             historyManager.remove(taskId);
+            modified(TaskType.EPIC, TaskType.SUBTASK);
         } else if (subTasks.containsKey(taskId)) {
             int epicId = subTasks.get(taskId).getEpicId();
-            Epic epic = epics.get(epicId);
-
-            epic.removeSubTaskById(taskId);
-            subTasks.remove(taskId);
+            removeIndexed(subTasks, taskId);
+            subTaskIdsByEpicId.get(epicId).remove(taskId);
+            subTaskIntervals.get(epicId).remove(taskId);
             historyManager.remove(taskId);
+            refreshSubTaskIds(epicId);
             setEpicDateTime(epicId);
+            modified(TaskType.SUBTASK);
         } else {
             throw new NoSuchElementException("Unable to remove task: the task with this ID does not exist.");
         }
     }
 
-    // Updates the epic's start time and duration based on its subtasks.
-// If there are no subtasks, the epic retains its original values.
+    // Removes every task matching the filter in one pass and returns the IDs of the removed tasks.
+// Removing an epic also removes its subtasks, which are listed before the epic.
+// The time of an epic that keeps some of its subtasks is recalculated once,
+// however many of its subtasks are removed, and the versions are incremented once.
+// The candidates for a TaskFilter come from the query indexes instead of a scan of the whole board.
+    @Override
+    public List<Integer> removeIf(Predicate<? super Task> filter) {
+        List<Integer> removedIds = new ArrayList<>();
+        Set<Integer> changedEpicIds = new HashSet<>();
+        Set<TaskType> modifiedTypes = EnumSet.noneOf(TaskType.class);
+        for (Task task : getRemovalCandidates(filter)) {
+            if (!filter.test(task)) {
+                continue;
+            }
+            final int taskId = task.getTaskId();
+            switch (task) {
+                case Epic epic -> {
+                    for (int subTaskId : subTaskIdsByEpicId.get(taskId)) {
+                        removeIndexed(subTasks, subTaskId);
+                        historyManager.remove(subTaskId);
+                        removedIds.add(subTaskId);
+                    }
+                    removePrioritizedTasks(removeIndexed(epics, taskId));
+                    subTaskIdsByEpicId.remove(taskId);
+                    subTaskIntervals.remove(taskId);
+                    modifiedTypes.add(TaskType.EPIC);
+                    modifiedTypes.add(TaskType.SUBTASK);
+                }
+                case SubTask subTask -> {
+                    // Already removed together with its epic.
+                    if (removeIndexed(subTasks, taskId) == null) {
+                        continue;
+                    }
+                    subTaskIdsByEpicId.get(subTask.getEpicId()).remove(taskId);
+                    subTaskIntervals.get(subTask.getEpicId()).remove(taskId);
+                    changedEpicIds.add(subTask.getEpicId());
+                    modifiedTypes.add(TaskType.SUBTASK);
+                }
+                default -> {
+                    removePrioritizedTasks(removeIndexed(tasks, taskId));
+                    modifiedTypes.add(TaskType.TASK);
+                }
+            }
+            historyManager.remove(taskId);
+            removedIds.add(taskId);
+        }
+
+        // Every epic that keeps some of its subtasks is copied and recalculated once.
+        for (int epicId : changedEpicIds) {
+            refreshSubTaskIds(epicId);
+            setEpicDateTime(epicId);
+        }
+        if (!modifiedTypes.isEmpty()) {
+            modified(modifiedTypes.toArray(new TaskType[0]));
+        }
+        return removedIds;
+    }
+
+    private Collection<Task> getRemovalCandidates(Predicate<? super Task> filter) {
+        if (filter instanceof TaskFilter taskFilter) {
+            return query(taskFilter);
+        }
+        return getAllTasks();
+    }
+
+    // Updates the epic's start time and duration based on its base values and its subtasks.
+// The subtask bounds come from the epic's interval index, so no subtask list is rebuilt.
+// The epic is replaced and re-prioritized only when its bounds actually change.
     private void setEpicDateTime(int epicId) {
         if (epics.containsKey(epicId)) {
             Epic epic = epics.get(epicId);
-            List<Task> subTasks = getSubTasksByEpicId(epicId);
-            LocalDateTime startTime = epic.getStartTime();
-            LocalDateTime endTime = epic.getEndTime();
+            TimeIntervalIndex intervals = subTaskIntervals.get(epicId);
 
-            // If there are no subtasks, retain the epic's base values.
-            if (subTasks.isEmpty()) {
-                return;
-            }
+            // The epic's own (base) interval; epics restored without it fall back to the current values.
+            LocalDateTime startTime = epic.getEpicStartTime() != null ? epic.getEpicStartTime() : epic.getStartTime();
+            Duration duration = epic.getEpicDuration() != null ? epic.getEpicDuration() : epic.getDuration();
+            LocalDateTime endTime = (startTime != null && duration != null) ? startTime.plus(duration) : null;
 
-            // Find the earliest start time among the subtasks
-            LocalDateTime minStartTime = subTasks.stream()
-                    .map(Task::getStartTime)
-                    .min(LocalDateTime::compareTo)
-                    .orElse(startTime);
+            if (intervals != null && intervals.size() > 0) {
+                // Earliest subtask start and latest subtask end
+                LocalDateTime minStartTime = intervals.getEarliestStart();
+                LocalDateTime maxEndTime = intervals.getLatestEnd();
 
-            // Find the latest end time among the subtasks
-            LocalDateTime maxEndTime = subTasks.stream()
-                    .map(Task::getEndTime)
-                    .max(LocalDateTime::compareTo)
-                    .orElse(epic.getEndTime());
-
-            // Determine the new start time as the earlier one between the epic's base and the earliest subtask start time
-            LocalDateTime newStartTime = (minStartTime.isBefore(startTime)) ? minStartTime : startTime;
+                startTime = (endTime == null || minStartTime.isBefore(startTime)) ? minStartTime : startTime;
+                endTime = (endTime == null || maxEndTime.isAfter(endTime)) ? maxEndTime : endTime;
+            }
 
-            // Determine the new end time as the later one between the epic's base and the latest subtask end time
-            LocalDateTime newEndTime = (maxEndTime.isAfter(endTime)) ? maxEndTime : endTime;
+            if (startTime == null || endTime == null) {
+                return;
+            }
 
-            // Calculate the new duration as the difference between the new start time and new end time
-            Duration newDuration = Duration.between(newStartTime, newEndTime);
+            Duration newDuration = Duration.between(startTime, endTime);
+            if (startTime.equals(epic.getStartTime()) && newDuration.equals(epic.getDuration())) {
+                return;
+            }
 
-            // Remove old epic from prioritizedTasks
-            prioritizedTasks.remove(epic);
+            removePrioritizedTasks(epic);
 
             // Create a new Epic instance with updated time parameters
-            epics.put(epicId, new Epic(
+            putIndexed(epics, new Epic(
                     epic,
-                    newStartTime,
+                    startTime,
                     newDuration,
                     epic.getEpicStartTime(),    // retain the base startTime
                     epic.getEpicDuration()));   // retain the base duration
 
-            // Add a new epic
-            prioritizedTasks.add(epics.get(epicId));
+            addPrioritizedTasks(epics.get(epicId));
+        }
+    }
+
+    // Creates a copy of the epic with the given status and a snapshot of the epic's subtask IDs from the index.
+    private Epic copyEpic(Epic epic, TaskStatus taskStatus) {
+        return new Epic(
+                epic.getName(),
+                epic.getDescription(),
+                taskStatus,
+                epic.getTaskId(),
+                subTaskIdsByEpicId.get(epic.getTaskId()),
+                epic.getStartTime(),
+                epic.getDuration(),
+                epic.getEpicStartTime(),
+                epic.getEpicDuration());
+    }
+
+    // Replaces the stored epic with a copy listing its current subtasks, so an epic that was handed out never changes.
+    // Called once per change of the epic's subtasks; the copy takes time proportional to their number.
+    // Epics removed in the meantime are skipped.
+    private void refreshSubTaskIds(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic != null) {
+            removePrioritizedTasks(epic);
+            putIndexed(epics, copyEpic(epic, epic.getTaskStatus()));
+            addPrioritizedTasks(epics.get(epicId));
         }
     }
 
     // Returns "true" if all subtasks of the given epic have the DONE status.
-    private boolean subTasksIsDone(Epic epic) {
-        return epic.getSubTasksIds().stream()
+    private boolean subTasksIsDone(int epicId) {
+        return subTaskIdsByEpicId.get(epicId).stream()
                 .map(subTasks::get)
                 .map(SubTask::getTaskStatus)
                 .allMatch(taskStatus -> taskStatus == TaskStatus.DONE);
     }
 
     // Checks if the given task overlaps with any of the existing tasks.
-// If the task is a subtask, its parent epic is used for the overlap check.
-// If an identical task already exists, the overlap check is skipped.
+// If the task is a subtask, only the other subtasks of its parent epic are checked.
+// If an identical task already exists or the task has no time interval, the overlap check is skipped.
+// It is also skipped while a batch is applied: the batch has been checked as a whole.
     private boolean tasksIsOverlap(Task task) {
-        if (isExistInPrioritizedTasks(task)) {
+        if (applyingValidatedBatch || isExistInPrioritizedTasks(task)) {
             return false;
         }
 
         LocalDateTime taskStart = task.getStartTime();
         LocalDateTime taskEnd = task.getEndTime();
-
-        Stream<Task> existingTasks = prioritizedTasks.stream()
-                .filter(t -> t.getTaskId() != task.getTaskId());
+        if (taskStart == null || taskEnd == null) {
+            return false;
+        }
 
         if (task instanceof SubTask subTask) {
-            existingTasks = getSubTasksByEpicId(subTask.getEpicId()).stream();
+            TimeIntervalIndex siblings = subTaskIntervals.get(subTask.getEpicId());
+            return siblings != null && siblings.overlaps(taskStart, taskEnd, subTask.getTaskId());
         }
-
-        return existingTasks.anyMatch(existingTask ->
-                taskStart.isBefore(existingTask.getEndTime()) &&
-                        taskEnd.isAfter(existingTask.getStartTime()));
+        return prioritizedIntervals.overlaps(taskStart, taskEnd, task.getTaskId());
     }
 
     // Updates a task. Dispatches the update to a specific method based on the task type.
     @Override
     public void update(Task task) {
+        replaceTask(task);
+        modified(task.getTaskType());
+    }
+
+    private void replaceTask(Task task) {
         if (!isExist(task)) {
             throw new NoSuchElementException("Unable to update task: the task with this ID does not exist.");
         } else if (task instanceof Epic) {
@@ -321,9 +794,9 @@ public class InMemoryTaskManager implements TaskManager {
             if (tasksIsOverlap(task)) {
                 throw new TaskIsOverlapException("The updated task overlaps the existing task!");
             } else {
-                prioritizedTasks.remove(tasks.get(taskId));
-                tasks.put(taskId, new Task(task));
-                prioritizedTasks.add(task);
+                removePrioritizedTasks(tasks.get(taskId));
+                putIndexed(tasks, new Task(task));
+                addPrioritizedTasks(tasks.get(taskId));
             }
         }
     }
@@ -335,13 +808,14 @@ public class InMemoryTaskManager implements TaskManager {
             if (tasksIsOverlap(epic)) {
                 throw new TaskIsOverlapException("The updated task overlaps the existing task!");
             } else {
-                prioritizedTasks.remove(epics.get(epic.getTaskId()));
+                removePrioritizedTasks(epics.get(epic.getTaskId()));
 
-                if (epic.getTaskStatus() == TaskStatus.DONE && subTasksIsDone(epic)) {
-                    epics.put(epic.getTaskId(), new Epic(epic, TaskStatus.DONE));
+                if (epic.getTaskStatus() == TaskStatus.DONE && subTasksIsDone(taskId)) {
+                    putIndexed(epics, copyEpic(epic, TaskStatus.DONE));
                 } else if (epic.getTaskStatus() != TaskStatus.DONE) {
-                    epics.put(epic.getTaskId(), new Epic(epic));
+                    putIndexed(epics, copyEpic(epic, epic.getTaskStatus()));
                 }
+                addPrioritizedTasks(epics.get(epic.getTaskId()));
                 setEpicDateTime(epic.getTaskId());
             }
         }
@@ -349,6 +823,7 @@ public class InMemoryTaskManager implements TaskManager {
 
     // Updates a subtask. Performs an overlap check, updates the subtask in the subTasks collection,
 //and then updates the parent epic's status and time parameters if necessary.
+// A subtask with another epic ID is moved from its previous epic, whose time and status are recalculated as well.
     private void updateSubtask(SubTask subTask) {
         final int taskId = subTask.getTaskId();
         final int epicId = subTask.getEpicId();
@@ -357,12 +832,25 @@ public class InMemoryTaskManager implements TaskManager {
             if (tasksIsOverlap(subTask)) {
                 throw new TaskIsOverlapException("The updated task overlaps the existing task!");
             } else {
-                final Epic epic = epics.get(epicId);
-                subTasks.put(taskId, new SubTask(subTask));
+                final int previousEpicId = subTasks.get(taskId).getEpicId();
+                putIndexed(subTasks, new SubTask(subTask));
+                if (previousEpicId != epicId) {
+                    subTaskIdsByEpicId.get(previousEpicId).remove(taskId);
+                    subTaskIntervals.get(previousEpicId).remove(taskId);
+                    subTaskIdsByEpicId.get(epicId).add(taskId);
+                    refreshSubTaskIds(previousEpicId);
+                    refreshSubTaskIds(epicId);
+                    setEpicDateTime(previousEpicId);
+                    if (!subTaskIdsByEpicId.get(previousEpicId).isEmpty() && subTasksIsDone(previousEpicId)) {
+                        updateEpic(new Epic(epics.get(previousEpicId), TaskStatus.DONE));
+                    }
+                }
+                subTaskIntervals.computeIfAbsent(epicId, id -> new TimeIntervalIndex()).add(subTask);
                 setEpicDateTime(epicId);
+                final Epic epic = epics.get(epicId);
 
                 // Check the epic's status after updating the subtask.
-                if (subTask.getTaskStatus() == TaskStatus.DONE && subTasksIsDone(epic)) {
+                if (subTask.getTaskStatus() == TaskStatus.DONE && subTasksIsDone(epicId)) {
                     updateEpic(new Epic(epic, TaskStatus.DONE));
                 }
             }
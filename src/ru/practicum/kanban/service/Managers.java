@@ -1,18 +1,70 @@
 package ru.practicum.kanban.service;
 
 import java.nio.file.Path;
+import java.time.Duration;
 
 public class Managers {
+    private static final Duration DEFAULT_COMPACTION_INTERVAL = Duration.ofMinutes(1);
 
     public static TaskManager getDefault() {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getDefault(HistoryManager historyManager) {
+        return new InMemoryTaskManager(historyManager);
+    }
+
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    public static TaskManager getConcurrent(HistoryManager historyManager) {
+        return new ConcurrentTaskManager(historyManager);
+    }
+
     public static TaskManager getDefault(Path file) {
         return new FileBackedTaskManager(file);
     }
 
+    public static TaskManager getDefault(Path file, SnapshotFormat snapshotFormat) {
+        return new FileBackedTaskManager(file, snapshotFormat);
+    }
+
+    public static TaskManager getDefault(Path file, PersistenceMode persistenceMode) {
+        return new FileBackedTaskManager(file, persistenceMode, DEFAULT_COMPACTION_INTERVAL);
+    }
+
+    // Persists mutations in batches, see FileBackedTaskManager for the meaning of the flush settings.
+    public static TaskManager getDefault(Path file, PersistenceMode persistenceMode, Duration flushWindow,
+                                         int maxBatchSize) {
+        return new FileBackedTaskManager(file, persistenceMode, DEFAULT_COMPACTION_INTERVAL, flushWindow,
+                maxBatchSize);
+    }
+
+    // Persists the given history along with the tasks, e.g. a partitioned one.
+    public static TaskManager getDefault(Path file, PersistenceMode persistenceMode, HistoryManager historyManager) {
+        return new FileBackedTaskManager(file, persistenceMode, DEFAULT_COMPACTION_INTERVAL, Duration.ZERO, 1,
+                SnapshotFormat.CSV, historyManager);
+    }
+
+    // Thread-safe variant of getDefault(file, persistenceMode, historyManager) for the multithreaded HTTP server.
+    public static TaskManager getConcurrent(Path file, PersistenceMode persistenceMode,
+                                            HistoryManager historyManager) {
+        return new FileBackedTaskManager(file, persistenceMode, DEFAULT_COMPACTION_INTERVAL, Duration.ZERO, 1,
+                SnapshotFormat.CSV, historyManager, true);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    // Keeps at most maxEntries tasks viewed within maxAge (null for no age limit).
+    public static HistoryManager getDefaultHistory(int maxEntries, Duration maxAge) {
+        return new InMemoryHistoryManager(maxEntries, maxAge);
+    }
+
+    // Bounded history kept separately for each of at most maxClients clients.
+    public static HistoryManager getPartitionedHistory(int maxEntries, Duration maxAge, int maxClients) {
+        return new PartitionedHistoryManager(() -> new InMemoryHistoryManager(maxEntries, maxAge), maxClients);
+    }
 }
@@ -1,33 +0,0 @@
-package ru.practicum.kanban.service;
-
-public class Node<T> {
-    private final T data;
-    private Node<T> prev;
-    private Node<T> next;
-
-    public Node(Node<T> prev, T data, Node<T> next) {
-        this.prev = prev;
-        this.data = data;
-        this.next = next;
-    }
-
-    public T getData() {
-        return data;
-    }
-
-    public Node<T> getPrev() {
-        return prev;
-    }
-
-    public void setPrev(Node<T> prev) {
-        this.prev = prev;
-    }
-
-    public Node<T> getNext() {
-        return next;
-    }
-
-    public void setNext(Node<T> next) {
-        this.next = next;
-    }
-}
@@ -0,0 +1,141 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Keeps a separate history for every client, so a client viewing many tasks only evicts its own entries
+// from a bounded history. Views without a client ID go to the shared partition returned by getHistory().
+// At most maxClients client partitions are kept: the least recently used one is dropped for a new client.
+// Removing a task removes it from every partition.
+// Not thread-safe, like InMemoryHistoryManager; ConcurrentTaskManager serializes the calls.
+public class PartitionedHistoryManager implements HistoryManager {
+    private final Supplier<HistoryManager> partitionFactory;
+    private final HistoryManager sharedPartition;
+    private final Map<String, HistoryManager> partitions;
+
+    public PartitionedHistoryManager(Supplier<HistoryManager> partitionFactory, int maxClients) {
+        this.partitionFactory = partitionFactory;
+        this.sharedPartition = partitionFactory.get();
+        this.partitions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HistoryManager> eldest) {
+                return size() > maxClients;
+            }
+        };
+    }
+
+    @Override
+    public void addTask(Task task) {
+        sharedPartition.addTask(task);
+    }
+
+    @Override
+    public void addTask(String clientId, Task task) {
+        if (clientId == null) {
+            addTask(task);
+        } else {
+            partitions.computeIfAbsent(clientId, id -> partitionFactory.get()).addTask(task);
+        }
+    }
+
+    // Every partition is created by the same factory and is expected to use the same clock.
+    @Override
+    public long currentTimeMillis() {
+        return sharedPartition.currentTimeMillis();
+    }
+
+    @Override
+    public void addTask(Task task, long viewedAt) {
+        sharedPartition.addTask(task, viewedAt);
+    }
+
+    @Override
+    public void addTask(String clientId, Task task, long viewedAt) {
+        if (clientId == null) {
+            addTask(task, viewedAt);
+        } else {
+            partitions.computeIfAbsent(clientId, id -> partitionFactory.get()).addTask(task, viewedAt);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return sharedPartition.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(String clientId) {
+        if (clientId == null) {
+            return getHistory();
+        }
+        HistoryManager partition = partitions.get(clientId);
+        return partition == null ? List.of() : partition.getHistory();
+    }
+
+    @Override
+    public List<Entry> getEntries() {
+        return sharedPartition.getEntries();
+    }
+
+    @Override
+    public List<Entry> getEntries(String clientId) {
+        if (clientId == null) {
+            return getEntries();
+        }
+        HistoryManager partition = partitions.get(clientId);
+        return partition == null ? List.of() : partition.getEntries();
+    }
+
+    @Override
+    public List<Task> getRecentHistory(int limit) {
+        return sharedPartition.getRecentHistory(limit);
+    }
+
+    @Override
+    public List<Task> getRecentHistory(String clientId, int limit) {
+        if (clientId == null) {
+            return getRecentHistory(limit);
+        }
+        HistoryManager partition = partitions.get(clientId);
+        return partition == null ? List.of() : partition.getRecentHistory(limit);
+    }
+
+    @Override
+    public long getVersion() {
+        return sharedPartition.getVersion();
+    }
+
+    // A dropped partition has version 0, like a client that has never viewed a task.
+    @Override
+    public long getVersion(String clientId) {
+        if (clientId == null) {
+            return getVersion();
+        }
+        HistoryManager partition = partitions.get(clientId);
+        return partition == null ? 0 : partition.getVersion();
+    }
+
+    @Override
+    public List<String> getClientIds() {
+        return new ArrayList<>(partitions.keySet());
+    }
+
+    @Override
+    public void remove(int id) {
+        sharedPartition.remove(id);
+        for (HistoryManager partition : partitions.values()) {
+            partition.remove(id);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        sharedPartition.removeAll();
+        partitions.clear();
+    }
+}
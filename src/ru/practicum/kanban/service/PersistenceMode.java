@@ -0,0 +1,9 @@
+package ru.practicum.kanban.service;
+
+// Defines how FileBackedTaskManager persists mutations.
+public enum PersistenceMode {
+    // Every mutation rewrites the whole snapshot file.
+    SNAPSHOT,
+    // Every mutation appends one record to the journal; the journal is periodically compacted into the snapshot.
+    JOURNAL
+}
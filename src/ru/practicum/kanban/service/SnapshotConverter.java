@@ -0,0 +1,62 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.exceptions.ManagerLoadException;
+import ru.practicum.kanban.exceptions.ManagerSaveException;
+import ru.practicum.kanban.model.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Converts snapshot files between the CSV and the binary format without starting a task manager.
+// Usage: SnapshotConverter <source> <target> <CSV|BINARY>
+public class SnapshotConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: SnapshotConverter <source> <target> <CSV|BINARY>");
+            return;
+        }
+        convert(Paths.get(args[0]), Paths.get(args[1]), SnapshotFormat.valueOf(args[2].toUpperCase()));
+    }
+
+    // Reads the source snapshot in either format and writes it to the target file in targetFormat.
+    // Returns the number of converted tasks.
+    public static int convert(Path source, Path target, SnapshotFormat targetFormat) {
+        List<Task> tasks = new ArrayList<>();
+        int taskCounter;
+        try {
+            if (TaskBinaryFormatHandler.isBinarySnapshot(source)) {
+                taskCounter = TaskBinaryFormatHandler.read(source, tasks::add);
+            } else {
+                try (BufferedReader reader = Files.newBufferedReader(source)) {
+                    taskCounter = TaskCsvFormatHandler.read(reader, tasks::add);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("File reading error: " + e.getMessage());
+        }
+
+        try {
+            if (targetFormat == SnapshotFormat.BINARY) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+                    TaskBinaryFormatHandler.write(out, tasks, taskCounter);
+                }
+            } else {
+                try (BufferedWriter writer = Files.newBufferedWriter(target)) {
+                    TaskCsvFormatHandler.write(writer, tasks, taskCounter);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error: " + e.getMessage());
+        }
+        return tasks.size();
+    }
+}
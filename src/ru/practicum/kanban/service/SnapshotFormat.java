@@ -0,0 +1,10 @@
+package ru.practicum.kanban.service;
+
+// Defines the file format FileBackedTaskManager writes its snapshot in.
+// Both formats are recognized on load, so switching the format converts the file on the next save.
+public enum SnapshotFormat {
+    // Human-readable rows, see TaskCsvFormatHandler.
+    CSV,
+    // Compact length-prefixed records, see TaskBinaryFormatHandler.
+    BINARY
+}
@@ -0,0 +1,311 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.exceptions.ManagerLoadException;
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+// Binary snapshot format.
+// Layout: magic "KNBN", format version (1 byte), task ID counter (varint), number of tasks (varint), tasks.
+// A task is: type tag (1 byte), ID (varint), status (1 byte), presence flags (1 byte), name and description
+// (varint length of the UTF-8 bytes + 1, 0 for null, then the bytes), and then only the present fields:
+// startTime, duration, epicStartTime, epicDuration and, for subtasks, the epic ID (varint).
+// Timestamps are stored as UTC epoch seconds (zigzag varint) followed by nanoseconds (varint),
+// durations as seconds (zigzag varint) followed by nanoseconds (varint).
+// Names and descriptions may contain any characters, including commas and line breaks.
+// Since version 2 the snapshot ends with the CRC32C of all the preceding bytes (4 bytes, big-endian).
+public class TaskBinaryFormatHandler {
+    private static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    private static final int VERSION = 2;
+    private static final int UNCHECKED_VERSION = 1;
+
+    private static final int TAG_TASK = 1;
+    private static final int TAG_EPIC = 2;
+    private static final int TAG_SUBTASK = 3;
+
+    private static final int HAS_START_TIME = 1;
+    private static final int HAS_DURATION = 1 << 1;
+    private static final int HAS_EPIC_START_TIME = 1 << 2;
+    private static final int HAS_EPIC_DURATION = 1 << 3;
+
+    // Smaller snapshots are read into the heap instead of being memory-mapped.
+    private static final int MAPPING_THRESHOLD = 1 << 20;
+    private static final int SCRATCH_SIZE = 256;
+
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    // Returns "true" if the file starts with the binary snapshot signature.
+    protected static boolean isBinarySnapshot(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    // Writes a snapshot of the tasks and the task ID counter. The stream is expected to be buffered.
+    // The checksum is updated in blocks of the inner buffer rather than per written byte.
+    protected static void write(OutputStream out, Collection<? extends Task> tasks, int taskCounter)
+            throws IOException {
+        CRC32C checksum = new CRC32C();
+        OutputStream checked = new BufferedOutputStream(new CheckedOutputStream(out, checksum));
+        checked.write(MAGIC);
+        checked.write(VERSION);
+        writeVarLong(checked, taskCounter);
+        writeVarLong(checked, tasks.size());
+        for (Task task : tasks) {
+            writeTask(checked, task);
+        }
+        checked.flush();
+        int value = (int) checksum.getValue();
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    // Reads a snapshot file and passes every task to the consumer in the order they were written.
+    // Returns the task ID counter.
+    // Large files are memory-mapped and decoded straight from the page cache, so loading does not need
+    // a heap copy of the file; small ones are read into a heap buffer, which avoids the mapping setup cost
+    // and does not keep the file mapped (and therefore locked on some platforms) until the next GC.
+    protected static int read(Path file, Consumer<Task> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerLoadException("Binary snapshot " + file + " is too large: " + size + " bytes");
+            }
+            ByteBuffer buffer;
+            if (size >= MAPPING_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // read the whole file
+                }
+                buffer.flip();
+            }
+            return read(buffer, consumer);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Unexpected end of binary snapshot " + file);
+        }
+    }
+
+    // Decodes a snapshot from the buffer's position up to its limit.
+    // The checksum is verified before the first task is decoded, so a damaged file is rejected without passing
+    // any task to the consumer, and the tasks are then decoded straight into the consumer without being collected.
+    // Snapshots of version 1 have no checksum: a damaged one fails while being decoded, after some tasks
+    // may have been passed to the consumer.
+    protected static int read(ByteBuffer buffer, Consumer<Task> consumer) {
+        int start = buffer.position();
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new ManagerLoadException("Not a binary snapshot");
+        }
+        int version = Byte.toUnsignedInt(buffer.get());
+        if (version == VERSION) {
+            verifyChecksum(buffer, start);
+        } else if (version != UNCHECKED_VERSION) {
+            throw new ManagerLoadException("Unsupported binary snapshot version " + version);
+        }
+        int taskCounter = (int) readVarLong(buffer);
+        long taskCount = readVarLong(buffer);
+        if (taskCount > buffer.remaining()) {
+            throw new ManagerLoadException("Binary snapshot declares " + taskCount + " tasks in "
+                    + buffer.remaining() + " bytes");
+        }
+        byte[] scratch = new byte[SCRATCH_SIZE];
+        for (long i = 0; i < taskCount; i++) {
+            consumer.accept(readTask(buffer, scratch));
+        }
+        if (version == VERSION) {
+            if (buffer.hasRemaining()) {
+                throw new ManagerLoadException("Unexpected data after the last task of binary snapshot");
+            }
+            // Skip the checksum.
+            buffer.limit(buffer.limit() + Integer.BYTES).position(buffer.limit());
+        }
+        return taskCounter;
+    }
+
+    // Checks the trailing checksum against the bytes from start and leaves the checksum out of the buffer's limit.
+    // A mapped buffer is checked in place, without a copy.
+    private static void verifyChecksum(ByteBuffer buffer, int start) {
+        int checksumPosition = buffer.limit() - Integer.BYTES;
+        if (checksumPosition < buffer.position()) {
+            throw new ManagerLoadException("Binary snapshot has no checksum");
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.duplicate().position(start).limit(checksumPosition));
+        if ((int) checksum.getValue() != buffer.getInt(checksumPosition)) {
+            throw new ManagerLoadException("Binary snapshot checksum mismatch");
+        }
+        buffer.limit(checksumPosition);
+    }
+
+    private static Task readTask(ByteBuffer buffer, byte[] scratch) {
+        int tag = Byte.toUnsignedInt(buffer.get());
+        int taskId = (int) readVarLong(buffer);
+        int status = Byte.toUnsignedInt(buffer.get());
+        if (status >= STATUSES.length) {
+            throw new ManagerLoadException("Unknown status " + status + " of task " + taskId);
+        }
+        TaskStatus taskStatus = STATUSES[status];
+        int flags = Byte.toUnsignedInt(buffer.get());
+        String name = readString(buffer, scratch);
+        String description = readString(buffer, scratch);
+        LocalDateTime startTime = (flags & HAS_START_TIME) != 0 ? readDateTime(buffer) : null;
+        Duration duration = (flags & HAS_DURATION) != 0 ? readDuration(buffer) : null;
+        LocalDateTime epicStartTime = (flags & HAS_EPIC_START_TIME) != 0 ? readDateTime(buffer) : null;
+        Duration epicDuration = (flags & HAS_EPIC_DURATION) != 0 ? readDuration(buffer) : null;
+
+        return switch (tag) {
+            case TAG_TASK -> new Task(name, description, taskStatus, taskId, startTime, duration);
+            case TAG_EPIC -> new Epic(name, description, taskStatus, taskId, new ArrayList<>(), startTime,
+                    duration, epicStartTime, epicDuration);
+            case TAG_SUBTASK -> new SubTask(name, description, taskStatus, taskId, (int) readVarLong(buffer),
+                    startTime, duration);
+            default -> throw new ManagerLoadException("Unknown type tag " + tag + " of task " + taskId);
+        };
+    }
+
+    // Heap buffers are decoded in place. Strings from a mapped buffer are copied through the reusable
+    // scratch array, so only the resulting String is allocated for the usual short names and descriptions.
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = (int) readVarLong(buffer);
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer buffer) {
+        long seconds = unZigZag(readVarLong(buffer));
+        return LocalDateTime.ofEpochSecond(seconds, (int) readVarLong(buffer), ZoneOffset.UTC);
+    }
+
+    private static Duration readDuration(ByteBuffer buffer) {
+        long seconds = unZigZag(readVarLong(buffer));
+        return Duration.ofSeconds(seconds, readVarLong(buffer));
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ManagerLoadException("Malformed varint in binary snapshot");
+    }
+
+    private static void writeTask(OutputStream out, Task task) throws IOException {
+        LocalDateTime epicStartTime = null;
+        Duration epicDuration = null;
+        int tag = TAG_TASK;
+        if (task instanceof Epic epic) {
+            tag = TAG_EPIC;
+            epicStartTime = epic.getEpicStartTime();
+            epicDuration = epic.getEpicDuration();
+        } else if (task instanceof SubTask) {
+            tag = TAG_SUBTASK;
+        }
+        int flags = (task.getStartTime() != null ? HAS_START_TIME : 0)
+                | (task.getDuration() != null ? HAS_DURATION : 0)
+                | (epicStartTime != null ? HAS_EPIC_START_TIME : 0)
+                | (epicDuration != null ? HAS_EPIC_DURATION : 0);
+
+        out.write(tag);
+        writeVarLong(out, task.getTaskId());
+        out.write(task.getTaskStatus().ordinal());
+        out.write(flags);
+        writeString(out, task.getName());
+        writeString(out, task.getDescription());
+        if (task.getStartTime() != null) {
+            writeDateTime(out, task.getStartTime());
+        }
+        if (task.getDuration() != null) {
+            writeDuration(out, task.getDuration());
+        }
+        if (epicStartTime != null) {
+            writeDateTime(out, epicStartTime);
+        }
+        if (epicDuration != null) {
+            writeDuration(out, epicDuration);
+        }
+        if (task instanceof SubTask subTask) {
+            writeVarLong(out, subTask.getEpicId());
+        }
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static void writeDateTime(OutputStream out, LocalDateTime dateTime) throws IOException {
+        writeVarLong(out, zigZag(dateTime.toEpochSecond(ZoneOffset.UTC)));
+        writeVarLong(out, dateTime.getNano());
+    }
+
+    private static void writeDuration(OutputStream out, Duration duration) throws IOException {
+        writeVarLong(out, zigZag(duration.getSeconds()));
+        writeVarLong(out, duration.getNano());
+    }
+
+    // Unsigned LEB128: 7 bits per byte, the high bit marks that more bytes follow.
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    // Maps signed values to unsigned ones so that small negative numbers stay short.
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
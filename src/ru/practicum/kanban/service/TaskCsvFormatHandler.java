@@ -1,7 +1,197 @@
 package ru.practicum.kanban.service;
 
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
 public class TaskCsvFormatHandler {
+    private static final int FIELD_COUNT = 10;
+
     protected static String getHeader() {
         return "id,type,name,status,description,startTime,duration,epicStartTime,epicDuration,epicId";
     }
+
+    // The last line of a snapshot stores the task ID counter.
+    protected static String getTaskCounterPrefix() {
+        return "taskCounter,";
+    }
+
+    // Writes a snapshot: the header, one row per task and the task ID counter.
+    protected static void write(Writer writer, Collection<? extends Task> tasks, int taskCounter) throws IOException {
+        writer.write(getHeader());
+        writer.write(System.lineSeparator());
+        for (Task task : tasks) {
+            writer.write(task.getDataForFileSaving());
+            writer.write(System.lineSeparator());
+        }
+        writer.write(getTaskCounterPrefix() + taskCounter);
+        writer.write(System.lineSeparator());
+    }
+
+    // Reads a snapshot line by line and passes every task to the consumer, so the file is never held in memory.
+    // Rows that cannot be parsed or applied are reported and skipped.
+    // Returns the task ID counter; for snapshots without the counter line it is the largest task ID.
+    protected static int read(BufferedReader reader, Consumer<Task> consumer) throws IOException {
+        int counter = 0;
+        String line = reader.readLine(); // first line is header
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith(getTaskCounterPrefix())) {
+                counter = Integer.parseInt(line, getTaskCounterPrefix().length(), line.length(), 10);
+                continue;
+            }
+            try {
+                Task task = parseTask(line);
+                consumer.accept(task);
+                counter = Math.max(counter, task.getTaskId());
+            } catch (NoSuchElementException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        return counter;
+    }
+
+    // Parses a row written by Task.getDataForFileSaving().
+    // Fields are located by their commas and decoded in place instead of splitting the row into strings;
+    // timestamps and durations in the format written by toString() are parsed without a formatter.
+    protected static Task parseTask(String line) {
+        try {
+            // fieldEnds[i] is the index of the comma after field i
+            int[] fieldEnds = new int[FIELD_COUNT];
+            int fieldCount = 0;
+            int position = 0;
+            while (fieldCount < FIELD_COUNT - 1) {
+                int comma = line.indexOf(',', position);
+                if (comma < 0) {
+                    break;
+                }
+                fieldEnds[fieldCount++] = comma;
+                position = comma + 1;
+            }
+            fieldEnds[fieldCount++] = line.length();
+            if (fieldCount < 7) {
+                throw new NoSuchElementException("Error loading data from string: " + line);
+            }
+
+            int taskId = Integer.parseInt(line, 0, fieldEnds[0], 10);
+            String taskName = line.substring(fieldEnds[1] + 1, fieldEnds[2]);
+            TaskStatus taskStatus = parseStatus(line, fieldEnds[2] + 1, fieldEnds[3]);
+            String taskDescription = line.substring(fieldEnds[3] + 1, fieldEnds[4]);
+            LocalDateTime startTime = parseDateTime(line, fieldEnds[4] + 1, fieldEnds[5]);
+            Duration duration = parseDuration(line, fieldEnds[5] + 1, fieldEnds[6]);
+
+            int typeStart = fieldEnds[0] + 1;
+            int typeLength = fieldEnds[1] - typeStart;
+            if (typeLength == 4 && line.startsWith("TASK", typeStart)) {
+                return new Task(taskName, taskDescription, taskStatus, taskId, startTime, duration);
+            } else if (typeLength == 4 && line.startsWith("EPIC", typeStart) && fieldCount >= 9) {
+                return new Epic(taskName, taskDescription, taskStatus, taskId, new ArrayList<>(), startTime,
+                        duration, parseDateTime(line, fieldEnds[6] + 1, fieldEnds[7]),
+                        parseDuration(line, fieldEnds[7] + 1, fieldEnds[8]));
+            } else if (typeLength == 7 && line.startsWith("SUBTASK", typeStart) && fieldCount == FIELD_COUNT) {
+                int epicId = Integer.parseInt(line, fieldEnds[8] + 1, fieldEnds[9], 10);
+                return new SubTask(taskName, taskDescription, taskStatus, taskId, epicId, startTime, duration);
+            }
+        } catch (RuntimeException e) {
+            if (e instanceof NoSuchElementException) {
+                throw e;
+            }
+            System.out.println("There is no task data in the string: " + e.getMessage());
+        }
+        throw new NoSuchElementException("Error loading data from string: " + line);
+    }
+
+    private static TaskStatus parseStatus(String line, int start, int end) {
+        for (TaskStatus status : TaskStatus.values()) {
+            if (status.name().length() == end - start && line.startsWith(status.name(), start)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown status " + line.substring(start, end));
+    }
+
+    private static boolean isNull(String line, int start, int end) {
+        return end == start || (end - start == 4 && line.startsWith("null", start));
+    }
+
+    // Parses "uuuu-MM-ddTHH:mm[:ss[.fraction]]" as written by LocalDateTime.toString().
+    private static LocalDateTime parseDateTime(String line, int start, int end) {
+        if (isNull(line, start, end)) {
+            return null;
+        }
+        int length = end - start;
+        if (length < 16 || line.charAt(start + 4) != '-' || line.charAt(start + 7) != '-'
+                || line.charAt(start + 10) != 'T' || line.charAt(start + 13) != ':') {
+            return LocalDateTime.parse(line.substring(start, end));
+        }
+        int year = Integer.parseInt(line, start, start + 4, 10);
+        int month = Integer.parseInt(line, start + 5, start + 7, 10);
+        int day = Integer.parseInt(line, start + 8, start + 10, 10);
+        int hour = Integer.parseInt(line, start + 11, start + 13, 10);
+        int minute = Integer.parseInt(line, start + 14, start + 16, 10);
+        int second = 0;
+        int nano = 0;
+        if (length > 16) {
+            if (length < 19 || line.charAt(start + 16) != ':') {
+                return LocalDateTime.parse(line.substring(start, end));
+            }
+            second = Integer.parseInt(line, start + 17, start + 19, 10);
+            if (length > 19) {
+                if (line.charAt(start + 19) != '.' || length > 29) {
+                    return LocalDateTime.parse(line.substring(start, end));
+                }
+                nano = Integer.parseInt(line, start + 20, end, 10);
+                for (int digits = length - 20; digits < 9; digits++) {
+                    nano *= 10;
+                }
+            }
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    // Parses "PT[nH][nM][nS]" as written by Duration.toString(); other forms go through Duration.parse().
+    private static Duration parseDuration(String line, int start, int end) {
+        if (isNull(line, start, end)) {
+            return null;
+        }
+        if (end - start < 4 || !line.startsWith("PT", start)) {
+            return Duration.parse(line.substring(start, end));
+        }
+        long seconds = 0;
+        int position = start + 2;
+        while (position < end) {
+            int numberEnd = line.charAt(position) == '-' ? position + 1 : position;
+            while (numberEnd < end && Character.isDigit(line.charAt(numberEnd))) {
+                numberEnd++;
+            }
+            if (numberEnd == end) {
+                return Duration.parse(line.substring(start, end));
+            }
+            long value = Long.parseLong(line, position, numberEnd, 10);
+            switch (line.charAt(numberEnd)) {
+                case 'H' -> seconds += value * 3600;
+                case 'M' -> seconds += value * 60;
+                case 'S' -> seconds += value;
+                default -> {
+                    // fractional seconds
+                    return Duration.parse(line.substring(start, end));
+                }
+            }
+            position = numberEnd + 1;
+        }
+        return Duration.ofSeconds(seconds);
+    }
 }
@@ -0,0 +1,90 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+import ru.practicum.kanban.model.enums.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Selects tasks by type, status, start time, ID and the epic of a subtask.
+// A task matches if it meets every given criterion; a null criterion matches every task.
+// A filter with an epicId only matches subtasks.
+// The start time range is [startFrom, startTo); a task without a start time never matches a range.
+public class TaskFilter implements Predicate<Task> {
+    private final Set<TaskType> taskTypes;
+    private final Set<TaskStatus> taskStatuses;
+    private final LocalDateTime startFrom;
+    private final LocalDateTime startTo;
+    private final Set<Integer> taskIds;
+    private final Integer epicId;
+
+    public TaskFilter(Set<TaskType> taskTypes, Set<TaskStatus> taskStatuses, LocalDateTime startFrom,
+                      LocalDateTime startTo, Set<Integer> taskIds) {
+        this(taskTypes, taskStatuses, startFrom, startTo, taskIds, null);
+    }
+
+    public TaskFilter(Set<TaskType> taskTypes, Set<TaskStatus> taskStatuses, LocalDateTime startFrom,
+                      LocalDateTime startTo, Set<Integer> taskIds, Integer epicId) {
+        this.taskTypes = taskTypes;
+        this.taskStatuses = taskStatuses;
+        this.startFrom = startFrom;
+        this.startTo = startTo;
+        this.taskIds = taskIds;
+        this.epicId = epicId;
+    }
+
+    @Override
+    public boolean test(Task task) {
+        if (taskTypes != null && !taskTypes.contains(task.getTaskType())) {
+            return false;
+        }
+        if (taskStatuses != null && !taskStatuses.contains(task.getTaskStatus())) {
+            return false;
+        }
+        if (startFrom != null || startTo != null) {
+            LocalDateTime startTime = task.getStartTime();
+            if (startTime == null
+                    || (startFrom != null && startTime.isBefore(startFrom))
+                    || (startTo != null && !startTime.isBefore(startTo))) {
+                return false;
+            }
+        }
+        if (epicId != null && !(task instanceof SubTask subTask && subTask.getEpicId() == epicId)) {
+            return false;
+        }
+        return taskIds == null || taskIds.contains(task.getTaskId());
+    }
+
+    // Returns "true" if no criterion is given, i.e. the filter matches every task.
+    public boolean isEmpty() {
+        return taskTypes == null && taskStatuses == null && startFrom == null && startTo == null && taskIds == null
+                && epicId == null;
+    }
+
+    public Set<TaskType> getTaskTypes() {
+        return taskTypes;
+    }
+
+    public Set<TaskStatus> getTaskStatuses() {
+        return taskStatuses;
+    }
+
+    public LocalDateTime getStartFrom() {
+        return startFrom;
+    }
+
+    public LocalDateTime getStartTo() {
+        return startTo;
+    }
+
+    public Set<Integer> getTaskIds() {
+        return taskIds;
+    }
+
+    public Integer getEpicId() {
+        return epicId;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.exceptions.ManagerLoadException;
+import ru.practicum.kanban.exceptions.ManagerSaveException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Append-only file with one record per line.
+// The file is opened once and kept open. append() only buffers a record; flush() hands the buffered
+// records to the OS in one write and force() makes them durable, so several records can share one flush.
+public class TaskJournal {
+    private final Path file;
+    private FileChannel channel;
+    private BufferedWriter writer;
+    private int recordCount;
+
+    public TaskJournal(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Number of records appended or replayed since the journal was last reset.
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized void append(String record) {
+        try {
+            if (writer == null) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            }
+            writer.write(record);
+            writer.newLine();
+            recordCount++;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error writing journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Writes the buffered records to the file.
+    public synchronized void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Error writing journal " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Forces the written records to the storage device.
+    public void force() {
+        FileChannel currentChannel;
+        synchronized (this) {
+            currentChannel = channel;
+        }
+        if (currentChannel != null) {
+            try {
+                currentChannel.force(false);
+            } catch (IOException e) {
+                // The journal was closed concurrently by reset(); its records are already in the snapshot.
+                if (currentChannel.isOpen()) {
+                    throw new ManagerSaveException("Error syncing journal " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Passes every record of the journal to the consumer in the order they were appended.
+    public synchronized void replay(Consumer<String> consumer) {
+        if (Files.notExists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                if (!record.isEmpty()) {
+                    consumer.accept(record);
+                    recordCount++;
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Error reading journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Atomically replaces all records with the supplied ones. The records are supplied under the journal's lock,
+    // so no record appended concurrently is lost.
+    public synchronized void rewrite(Supplier<List<String>> records) {
+        close();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            List<String> lines = records.get();
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            recordCount = lines.size();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error rewriting journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Discards all records, e.g. after they have been compacted into a snapshot.
+    public synchronized void reset() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+            recordCount = 0;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error resetting journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Error closing journal " + file + ": " + e.getMessage());
+            } finally {
+                writer = null;
+                channel = null;
+            }
+        }
+    }
+}
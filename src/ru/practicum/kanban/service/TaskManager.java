@@ -1,23 +1,54 @@
 package ru.practicum.kanban.service;
 
 import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskType;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 public interface TaskManager {
     static int generateTaskId() {
-        return ++InMemoryTaskManager.taskCounter;
+        return InMemoryTaskManager.taskCounter.incrementAndGet();
     }
 
     void addTask(Task task);
 
+    // Adds the new tasks of the batch and updates the existing ones, in batch order.
+    // The whole batch is validated first and applied only if every task is valid, so it is applied
+    // either completely or not at all. Returns the result of every task, in batch order.
+    List<BatchResult> addTasks(Collection<? extends Task> tasks);
+
+    // Like addTasks, but every task of the batch must already exist.
+    List<BatchResult> updateAll(Collection<? extends Task> tasks);
+
     List<Task> getAllTasks();
 
     List<Task> getEpics();
 
     List<Task> getHistory();
 
+    // Incremented after every successful mutation. Read it before reading the data it is paired with.
+    long getVersion();
+
+    // Incremented after every successful mutation of the tasks of this type.
+    // Changes of subtasks also count as changes of their epics.
+    long getVersion(TaskType taskType);
+
+    // Changes with every change of the shared history, including removals and evictions, see HistoryManager.
+    long getHistoryVersion();
+
+    // The same for the history of the client.
+    default long getHistoryVersion(String clientId) {
+        return getHistoryVersion();
+    }
+
+    // Returns "true" if the manager may be called from several threads at once, see ConcurrentTaskManager.
+    default boolean isThreadSafe() {
+        return false;
+    }
+
     Set<Task> getPrioritizedTasks();
 
     List<Task> getSubTasks();
@@ -26,13 +57,39 @@ public interface TaskManager {
 
     Task getTaskById(int taskId);
 
+    // Like getTaskById, but adds the task to the history of the client (see HistoryManager).
+    default Task getTaskById(int taskId, String clientId) {
+        return getTaskById(taskId);
+    }
+
+    default List<Task> getHistory(String clientId) {
+        return getHistory();
+    }
+
+    // The last limit entries of the client's history, in the same order as getHistory().
+    default List<Task> getRecentHistory(String clientId, int limit) {
+        List<Task> history = getHistory(clientId);
+        return history.subList(Math.max(0, history.size() - limit), history.size());
+    }
+
     List<Task> getTasks();
 
+    // Returns up to limit tasks of the type with IDs greater than afterId, in ascending ID order.
+    // The ID of the last returned task is the cursor for the next page.
+    List<Task> getPage(TaskType taskType, int afterId, int limit);
+
+    // Returns the tasks matching the filter in ascending ID order. Found tasks are not added to the history.
+    List<Task> query(TaskFilter filter);
+
     boolean isExist(Task task);
 
     void removeAllTasks();
 
     void removeTaskById(int taskId);
 
+    // Removes every task matching the filter at once and returns the IDs of the removed tasks.
+    // Removing an epic also removes its subtasks.
+    List<Integer> removeIf(Predicate<? super Task> filter);
+
     void update(Task task);
 }
@@ -0,0 +1,106 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+import ru.practicum.kanban.model.enums.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Secondary indexes of the board used by TaskManager.query(): task IDs by type and status,
+// and by type and start time. A query reads only the IDs in the requested statuses or start time range,
+// so its cost is proportional to the number of candidates rather than to the size of the board.
+// The index is updated by the mutating methods of the manager and read without locking,
+// so it is built from concurrent collections.
+public class TaskQueryIndex {
+    private final Map<TaskType, Map<TaskStatus, Set<Integer>>> idsByStatus = new EnumMap<>(TaskType.class);
+    private final Map<TaskType, NavigableMap<LocalDateTime, Set<Integer>>> idsByStartTime =
+            new EnumMap<>(TaskType.class);
+
+    public TaskQueryIndex() {
+        for (TaskType taskType : TaskType.values()) {
+            Map<TaskStatus, Set<Integer>> byStatus = new EnumMap<>(TaskStatus.class);
+            for (TaskStatus taskStatus : TaskStatus.values()) {
+                byStatus.put(taskStatus, ConcurrentHashMap.newKeySet());
+            }
+            idsByStatus.put(taskType, byStatus);
+            idsByStartTime.put(taskType, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    // Replaces the indexed state of a task with its new state; previous is null for a new task.
+    public void replace(Task previous, Task task) {
+        if (previous != null) {
+            remove(previous);
+        }
+        add(task);
+    }
+
+    public void add(Task task) {
+        if (task.getTaskStatus() != null) {
+            idsByStatus.get(task.getTaskType()).get(task.getTaskStatus()).add(task.getTaskId());
+        }
+        if (task.getStartTime() != null) {
+            idsByStartTime.get(task.getTaskType())
+                    .computeIfAbsent(task.getStartTime(), startTime -> ConcurrentHashMap.newKeySet())
+                    .add(task.getTaskId());
+        }
+    }
+
+    public void remove(Task task) {
+        if (task.getTaskStatus() != null) {
+            idsByStatus.get(task.getTaskType()).get(task.getTaskStatus()).remove(task.getTaskId());
+        }
+        if (task.getStartTime() != null) {
+            idsByStartTime.get(task.getTaskType()).computeIfPresent(task.getStartTime(), (startTime, ids) -> {
+                ids.remove(task.getTaskId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    public void clear() {
+        for (TaskType taskType : TaskType.values()) {
+            idsByStatus.get(taskType).values().forEach(Set::clear);
+            idsByStartTime.get(taskType).clear();
+        }
+    }
+
+    // Returns the IDs of the tasks of the type that may match the statuses and the start time range [from, to).
+    // A time range is usually the narrower criterion, so the start time index is used if a range is given,
+    // otherwise the status index. Null criteria match everything, and the caller still has to check the tasks
+    // against all criteria. Returns null if neither criterion is given, i.e. every task is a candidate.
+    public Collection<Integer> findCandidates(TaskType taskType, Set<TaskStatus> taskStatuses,
+                                              LocalDateTime from, LocalDateTime to) {
+        List<Integer> candidates = new ArrayList<>();
+        if (from != null || to != null) {
+            NavigableMap<LocalDateTime, Set<Integer>> byStartTime = idsByStartTime.get(taskType);
+            if (from != null && to != null) {
+                if (!from.isBefore(to)) {
+                    return candidates;
+                }
+                byStartTime = byStartTime.subMap(from, true, to, false);
+            } else if (from != null) {
+                byStartTime = byStartTime.tailMap(from, true);
+            } else {
+                byStartTime = byStartTime.headMap(to, false);
+            }
+            byStartTime.values().forEach(candidates::addAll);
+        } else if (taskStatuses != null) {
+            for (TaskStatus taskStatus : taskStatuses) {
+                candidates.addAll(idsByStatus.get(taskType).get(taskStatus));
+            }
+        } else {
+            return null;
+        }
+        return candidates;
+    }
+}
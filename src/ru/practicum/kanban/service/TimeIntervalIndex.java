@@ -0,0 +1,220 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Task;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+// Index of task time intervals used for overlap detection.
+// Intervals are stored in an AVL tree ordered by start time (ties are broken by task ID).
+// Every node also keeps the latest end time of its subtree, so an overlap query only descends
+// into branches that can contain an interval ending after the probed start.
+// Adding, removing and checking for an overlap take O(log N).
+public class TimeIntervalIndex {
+    private final Map<Integer, IntervalNode> nodesById = new HashMap<>();
+    private IntervalNode root;
+
+    // Adds the task's interval to the index, replacing the previously indexed interval of the same task.
+    // Tasks without a startTime or duration are not indexed.
+    public void add(Task task) {
+        remove(task.getTaskId());
+        if (task.getStartTime() == null || task.getDuration() == null) {
+            return;
+        }
+        IntervalNode node = new IntervalNode(task.getTaskId(), task.getStartTime(), task.getEndTime());
+        root = insert(root, node);
+        nodesById.put(node.taskId, node);
+    }
+
+    public void remove(int taskId) {
+        IntervalNode node = nodesById.remove(taskId);
+        if (node != null) {
+            root = remove(root, node.start, node.taskId);
+        }
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    // Returns "true" if the task with the given ID is indexed with exactly this interval.
+    public boolean contains(int taskId, LocalDateTime start, LocalDateTime end) {
+        IntervalNode node = nodesById.get(taskId);
+        return node != null && node.start.equals(start) && node.end.equals(end);
+    }
+
+    // Returns "true" if any indexed interval, except the one of ignoredTaskId, overlaps [start, end).
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, int ignoredTaskId) {
+        return overlaps(root, start, end, taskId -> taskId == ignoredTaskId);
+    }
+
+    // Returns "true" if any indexed interval of a task not matched by isIgnored overlaps [start, end).
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, IntPredicate isIgnored) {
+        return overlaps(root, start, end, isIgnored);
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    // Returns the earliest start time of the indexed intervals, or null if the index is empty.
+    public LocalDateTime getEarliestStart() {
+        if (root == null) {
+            return null;
+        }
+        IntervalNode node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.start;
+    }
+
+    // Returns the latest end time of the indexed intervals, or null if the index is empty.
+    public LocalDateTime getLatestEnd() {
+        return root == null ? null : root.maxEnd;
+    }
+
+    private boolean overlaps(IntervalNode node, LocalDateTime start, LocalDateTime end, IntPredicate isIgnored) {
+        // Nothing in this subtree ends after the probed start.
+        if (node == null || !node.maxEnd.isAfter(start)) {
+            return false;
+        }
+        if (overlaps(node.left, start, end, isIgnored)) {
+            return true;
+        }
+        // This node and its right subtree start at or after the probed end.
+        if (!node.start.isBefore(end)) {
+            return false;
+        }
+        if (!isIgnored.test(node.taskId) && node.end.isAfter(start)) {
+            return true;
+        }
+        return overlaps(node.right, start, end, isIgnored);
+    }
+
+    private static int compare(LocalDateTime start, int taskId, IntervalNode node) {
+        int result = start.compareTo(node.start);
+        return result != 0 ? result : Integer.compare(taskId, node.taskId);
+    }
+
+    private static IntervalNode insert(IntervalNode node, IntervalNode newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode.start, newNode.taskId, node) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return balance(node);
+    }
+
+    private static IntervalNode remove(IntervalNode node, LocalDateTime start, int taskId) {
+        if (node == null) {
+            return null;
+        }
+        int result = compare(start, taskId, node);
+        if (result < 0) {
+            node.left = remove(node.left, start, taskId);
+        } else if (result > 0) {
+            node.right = remove(node.right, start, taskId);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace the removed node with the leftmost node of its right subtree.
+            IntervalNode successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeLeftmost(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static IntervalNode removeLeftmost(IntervalNode node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeLeftmost(node.left);
+        return balance(node);
+    }
+
+    private static int height(IntervalNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    // Recalculates the height and the latest end time of the subtree from its direct children.
+    private static void update(IntervalNode node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static IntervalNode balance(IntervalNode node) {
+        update(node);
+        int balanceFactor = height(node.left) - height(node.right);
+        if (balanceFactor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static IntervalNode rotateLeft(IntervalNode node) {
+        IntervalNode newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private static IntervalNode rotateRight(IntervalNode node) {
+        IntervalNode newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private static class IntervalNode {
+        private final int taskId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private IntervalNode left;
+        private IntervalNode right;
+
+        IntervalNode(int taskId, LocalDateTime start, LocalDateTime end) {
+            this.taskId = taskId;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
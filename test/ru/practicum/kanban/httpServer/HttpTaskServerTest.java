@@ -16,17 +16,26 @@ import ru.practicum.kanban.model.enums.TaskType;
 import ru.practicum.kanban.service.Managers;
 import ru.practicum.kanban.service.TaskManager;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpTaskServerTest {
     RuntimeTypeAdapterFactory<Task> taskAdapter = RuntimeTypeAdapterFactory
@@ -335,4 +344,294 @@ public class HttpTaskServerTest {
         HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
         assertEquals(500, response.statusCode(),"Expected HTTP 500 when sending an empty JSON");
     }
+
+    @Test
+    void handleParallelRequestsWithVirtualThreads() throws IOException, InterruptedException {
+        TaskManager concurrentManager = Managers.getConcurrent();
+        concurrentManager.addTask(task);
+        HttpTaskServer server = new HttpTaskServer(concurrentManager, 8081, 64, ExecutorMode.VIRTUAL_THREADS);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8081/tasks/" + task.getTaskId()))
+                    .GET()
+                    .build();
+
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.join().statusCode(), "Expected HTTP 200 for every parallel request");
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void refuseMultithreadedExecutorForNonThreadSafeManager() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HttpTaskServer(Managers.getDefault(), 8081, 0, ExecutorMode.FIXED_POOL));
+        assertTrue(Managers.getConcurrent().isThreadSafe());
+    }
+
+    @Test
+    void serveUnchangedCollectionFromCache() throws IOException, InterruptedException {
+        manager.addTask(task);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+
+        HttpResponse<String> first = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> second = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals("MISS", first.headers().firstValue("X-Cache").orElse(null));
+        assertEquals("HIT", second.headers().firstValue("X-Cache").orElse(null));
+        assertEquals(first.body(), second.body());
+        assertEquals(1, taskServer.getResponseCache().getHitCount());
+
+        manager.addTask(new Task("Task2", "Test task2 description",
+                LocalDateTime.of(2025, 1, 2, 0, 0), Duration.ofHours(1)));
+        HttpResponse<String> afterUpdate = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals("MISS", afterUpdate.headers().firstValue("X-Cache").orElse(null));
+        assertEquals(manager.getTasks().size(), gson.fromJson(afterUpdate.body(), Task[].class).length);
+    }
+
+    @Test
+    void answerNotModifiedWhileCollectionIsUnchanged() throws IOException, InterruptedException {
+        manager.addTask(task);
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080/tasks");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder()
+                .uri(url)
+                .header("If-None-Match", etag)
+                .GET()
+                .build();
+        response = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, response.statusCode(), "Expected HTTP 304 for an unchanged collection");
+
+        // Adding an epic does not change the tasks collection.
+        manager.addTask(new Epic("Epic", "Test epic description", null, null));
+        response = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, response.statusCode(), "Expected HTTP 304 after a change of another collection");
+
+        manager.removeTaskById(task.getTaskId());
+        manager.addTask(task);
+        response = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), "Expected HTTP 200 after the collection has changed");
+        assertNotEquals(etag, response.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void cacheOnlyTheWholeSharedHistory() throws IOException, InterruptedException {
+        manager.addTask(task);
+        manager.getTaskById(task.getTaskId());
+        manager.getTaskById(task.getTaskId(), "client");
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest shared = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/history"))
+                .GET()
+                .build();
+        client.send(shared, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = client.send(shared, HttpResponse.BodyHandlers.ofString());
+        assertEquals("HIT", response.headers().firstValue("X-Cache").orElse(null));
+
+        for (HttpRequest request : List.of(
+                HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/history?limit=1")).GET().build(),
+                HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/history"))
+                        .header("X-Client-Id", "client").GET().build())) {
+            client.send(request, HttpResponse.BodyHandlers.ofString());
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("X-Cache").isEmpty());
+            String etag = response.headers().firstValue("ETag").orElseThrow();
+
+            HttpRequest conditional = HttpRequest.newBuilder(request, (name, value) -> true)
+                    .header("If-None-Match", etag)
+                    .build();
+            assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+        assertEquals(1, taskServer.getResponseCache().getHitCount());
+    }
+
+    @Test
+    void pageThroughTasksWithCursor() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            manager.addTask(new Task("Task" + i, "Test task description",
+                    LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i), Duration.ofHours(1)));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        List<Integer> ids = new ArrayList<>();
+        String cursor = "0";
+        while (cursor != null) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks?limit=2&cursor=" + cursor))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            for (Task page : gson.fromJson(response.body(), Task[].class)) {
+                ids.add(page.getTaskId());
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+            if (ids.size() == 2) {
+                // A task added while paging appears on a later page.
+                manager.addTask(new Task("Task5", "Test task description",
+                        LocalDateTime.of(2025, 2, 1, 0, 0), Duration.ofHours(1)));
+            }
+        }
+
+        assertEquals(manager.getTasks().stream().map(Task::getTaskId).toList(), ids);
+        assertEquals(6, ids.size());
+    }
+
+    @Test
+    void streamLargeCollection() throws IOException, InterruptedException {
+        Epic largeEpic = new Epic("Epic", "Test epic description", null, null);
+        manager.addTask(largeEpic);
+        for (int i = 0; i < 1200; i++) {
+            manager.addTask(new SubTask("SubTask" + i, "Test subtask description", largeEpic.getTaskId(),
+                    LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i), Duration.ofHours(1)));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(gson.toJson(manager.getSubTasks()), response.body(),
+                "A streamed response should match the buffered one");
+    }
+
+    @Test
+    void compressCompactResponseForGzipClients() throws IOException, InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            manager.addTask(new Task("Task" + i, "Test task description",
+                    LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i), Duration.ofHours(1)));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?pretty=false"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String json;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertFalse(json.contains("\n"), "Compact JSON should not be pretty-printed");
+        assertEquals(50, gson.fromJson(json, Task[].class).length);
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + manager.getTasks().get(0).getTaskId()))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(),
+                "Responses below the threshold should not be compressed");
+    }
+
+    @Test
+    void addTasksInBatch() throws IOException, InterruptedException {
+        Epic epic = new Epic("Epic", "Test epic description", LocalDateTime.of(2025, 1, 2, 0, 0), Duration.ofHours(1));
+        SubTask subTask = new SubTask("SubTask", "Test subtask description", epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 3, 0, 0), Duration.ofHours(1));
+        Task overlapping = new Task("Overlapping", "", LocalDateTime.of(2025, 1, 1, 0, 30), Duration.ofHours(1));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(new Task[]{task, epic, subTask, overlapping})))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode(), "Expected HTTP 400 when a task of the batch is rejected");
+        assertTrue(response.body().contains("\"REJECTED\""), response.body());
+        assertEquals(0, manager.getAllTasks().size(), "A rejected batch should not be applied");
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(new Task[]{task, epic, subTask})))
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), "Expected HTTP 200 when the batch is applied");
+        assertEquals(3, manager.getAllTasks().size(), "Incorrect number of tasks");
+        assertEquals(List.of(subTask), manager.getSubTasksByEpicId(epic.getTaskId()));
+    }
+
+    @Test
+    void deleteTasksByFilter() throws IOException, InterruptedException {
+        manager.addTask(task);
+        Task doneTask = new Task("Done", "", TaskStatus.DONE, 100,
+                LocalDateTime.of(2025, 1, 2, 0, 0), Duration.ofHours(1));
+        manager.addTask(doneTask);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .DELETE()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode(), "Expected HTTP 400 when deleting without a filter");
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=DONE&startFrom=2025-01-01T00:00"))
+                .DELETE()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), "Expected HTTP 200 when deleting by filter");
+        assertEquals(List.of(task), manager.getTasks());
+        assertTrue(response.body().contains(String.valueOf(doneTask.getTaskId())), response.body());
+    }
+
+    @Test
+    void queryTasksByStatusAndStartTime() throws IOException, InterruptedException {
+        Epic epic = new Epic("Epic", "Test epic description", LocalDateTime.of(2025, 1, 1, 0, 0), Duration.ofHours(1));
+        manager.addTask(epic);
+        SubTask nextWeek = new SubTask("NextWeek", "", TaskStatus.IN_PROGRESS, 100, epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 8, 0, 0), Duration.ofHours(1));
+        SubTask later = new SubTask("Later", "", TaskStatus.IN_PROGRESS, 101, epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 20, 0, 0), Duration.ofHours(1));
+        manager.addTask(nextWeek);
+        manager.addTask(later);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks?status=IN_PROGRESS"
+                        + "&startFrom=2025-01-06T00:00&startTo=2025-01-13T00:00&epicId=" + epic.getTaskId()))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(gson.toJson(List.of(nextWeek)), response.body());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks?status=UNKNOWN"))
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode(), "Expected HTTP 400 for an unknown status");
+    }
 }
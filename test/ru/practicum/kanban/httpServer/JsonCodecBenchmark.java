@@ -0,0 +1,66 @@
+package ru.practicum.kanban.httpServer;
+
+import com.google.gson.Gson;
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+import ru.practicum.kanban.service.BenchmarkSupport;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Compares encoding and decoding of tasks by the shared JsonCodec and by the reflective Gson
+// with RuntimeTypeAdapterFactory the handlers used before.
+// Not a unit test: run main() manually, optionally passing the number of tasks.
+// Every measurement is the median of several rounds after warm-up, see BenchmarkSupport.
+public class JsonCodecBenchmark {
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<Task> tasks = createTasks(taskCount);
+        List<String> json = new ArrayList<>();
+        for (Task task : tasks) {
+            json.add(JsonCodec.getGson().toJson(task, Task.class));
+        }
+
+        compare("encode list", () -> JsonCodec.getGson().toJson(tasks),
+                () -> JsonCodecTest.REFLECTIVE_GSON.toJson(tasks));
+        compare("decode", () -> decode(JsonCodec.getGson(), json),
+                () -> decode(JsonCodecTest.REFLECTIVE_GSON, json));
+    }
+
+    private static List<Task> createTasks(int taskCount) {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int id = 1; tasks.size() < taskCount; id++) {
+            if (id % 10 == 0) {
+                tasks.add(new Epic("Epic " + id, "Description of epic " + id, TaskStatus.NEW, id,
+                        new ArrayList<>(List.of(id + 1, id + 2)), null, null, start.plusHours(id),
+                        Duration.ofMinutes(60)));
+            } else if (id % 10 < 3) {
+                tasks.add(new SubTask("SubTask " + id, "Description of subtask " + id, TaskStatus.DONE, id,
+                        id - id % 10, start.plusHours(id), Duration.ofMinutes(30)));
+            } else {
+                tasks.add(new Task("Task " + id, "Description of task " + id, TaskStatus.IN_PROGRESS, id,
+                        start.plusHours(id), Duration.ofMinutes(45)));
+            }
+        }
+        return tasks;
+    }
+
+    private static void decode(Gson gson, List<String> json) {
+        for (String task : json) {
+            gson.fromJson(task, Task.class);
+        }
+    }
+
+    private static void compare(String operation, Runnable codec, Runnable reflective) {
+        long codecNanos = BenchmarkSupport.measure(codec);
+        long reflectiveNanos = BenchmarkSupport.measure(reflective);
+        System.out.printf("%-12s codec: %d ms, reflective: %d ms%n", operation,
+                TimeUnit.NANOSECONDS.toMillis(codecNanos), TimeUnit.NANOSECONDS.toMillis(reflectiveNanos));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.kanban.httpServer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.practicum.kanban.httpServer.adapters.DurationAdapter;
+import ru.practicum.kanban.httpServer.adapters.LocalDateTimeAdapter;
+import ru.practicum.kanban.httpServer.adapters.RuntimeTypeAdapterFactory;
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+class JsonCodecTest {
+    // The reflective configuration the handlers used before.
+    static final Gson REFLECTIVE_GSON = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapterFactory(RuntimeTypeAdapterFactory
+                    .of(Task.class, "type")
+                    .registerSubtype(Task.class, "TASK")
+                    .registerSubtype(Epic.class, "EPIC")
+                    .registerSubtype(SubTask.class, "SUBTASK"))
+            .setPrettyPrinting()
+            .create();
+
+    static List<Task> createTasks() {
+        return List.of(
+                new Task("Task \"1\"", "Описание", TaskStatus.IN_PROGRESS, 1,
+                        LocalDateTime.of(2025, 1, 1, 10, 30, 15, 5000), Duration.ofMinutes(90)),
+                new Task("Task 2", null, null, 2, null, null),
+                new Epic("Epic", "", TaskStatus.NEW, 3, new ArrayList<>(List.of(4, 5)), null, null,
+                        LocalDateTime.of(2025, 1, 2, 0, 0), Duration.ofHours(2)),
+                new SubTask("SubTask", "Description", TaskStatus.DONE, 4, 3,
+                        LocalDateTime.of(2025, 1, 2, 0, 0), Duration.ofHours(1)));
+    }
+
+    @Test
+    void shouldEncodeTasksLikeReflectiveGson() {
+        Gson gson = JsonCodec.getGson();
+        List<Task> tasks = createTasks();
+
+        Assertions.assertEquals(REFLECTIVE_GSON.toJson(tasks), gson.toJson(tasks));
+        for (Task task : tasks) {
+            Assertions.assertEquals(REFLECTIVE_GSON.toJson(task), gson.toJson(task));
+            Assertions.assertEquals(REFLECTIVE_GSON.toJson(task, Task.class), gson.toJson(task, Task.class));
+        }
+    }
+
+    @Test
+    void shouldDecodeTasksEncodedByReflectiveGson() {
+        Gson gson = JsonCodec.getGson();
+
+        for (Task task : createTasks()) {
+            Task decoded = gson.fromJson(REFLECTIVE_GSON.toJson(task, Task.class), Task.class);
+            Assertions.assertEquals(task.getClass(), decoded.getClass());
+            Assertions.assertEquals(task.getDataForFileSaving(), decoded.getDataForFileSaving());
+            Assertions.assertEquals(gson.toJson(task), gson.toJson(decoded));
+        }
+        Assertions.assertThrows(JsonParseException.class, () -> gson.fromJson("{}", Task.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> gson.fromJson("{\"type\":", Task.class));
+    }
+}
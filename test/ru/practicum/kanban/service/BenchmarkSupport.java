@@ -0,0 +1,34 @@
+package ru.practicum.kanban.service;
+
+import java.util.Arrays;
+
+// Timing helper shared by the main()-based benchmarks.
+// Every measurement is preceded by warm-up rounds, so the JIT has compiled the measured code,
+// and the median of the measured rounds is reported.
+public final class BenchmarkSupport {
+    public static final int WARM_UP_ROUNDS = 5;
+    public static final int MEASURED_ROUNDS = 10;
+
+    private BenchmarkSupport() {
+    }
+
+    // Returns the median duration of the measured rounds in nanoseconds.
+    public static long measure(Runnable action) {
+        return measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, action);
+    }
+
+    // The same with fewer rounds for long-running actions.
+    public static long measure(int warmUpRounds, int measuredRounds, Runnable action) {
+        for (int i = 0; i < warmUpRounds; i++) {
+            action.run();
+        }
+        long[] durations = new long[measuredRounds];
+        for (int i = 0; i < measuredRounds; i++) {
+            long start = System.nanoTime();
+            action.run();
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        return durations[measuredRounds / 2];
+    }
+}
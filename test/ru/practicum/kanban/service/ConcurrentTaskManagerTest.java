@@ -0,0 +1,159 @@
+package ru.practicum.kanban.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.kanban.exceptions.TaskIsOverlapException;
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ConcurrentTaskManagerTest {
+    static final int THREADS = 8;
+    static final int TASKS_PER_THREAD = 300;
+    static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    TaskManager taskManager;
+
+    @BeforeEach
+    void beforeEach() {
+        taskManager = Managers.getConcurrent();
+    }
+
+    @Test
+    void shouldKeepAllTasksWhenWritersAndReadersRunInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            final int offset = thread * TASKS_PER_THREAD;
+            // Every epic and its subtasks fit into a separate month long before the tasks.
+            final LocalDateTime epicStart = START.minusYears(10).plusMonths(thread);
+            writers.add(executor.submit(() -> {
+                Epic epic = new Epic("Epic", "", epicStart, Duration.ofHours(1));
+                taskManager.addTask(epic);
+                for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                    Task task = new Task("Task", "", START.plusHours(offset + i), Duration.ofHours(1));
+                    taskManager.addTask(task);
+                    taskManager.getTaskById(task.getTaskId());
+                    taskManager.addTask(new SubTask("SubTask", "", epic.getTaskId(),
+                            epicStart.plusHours(i), Duration.ofHours(1)));
+                }
+                return null;
+            }));
+        }
+        for (int thread = 0; thread < THREADS; thread++) {
+            readers.add(executor.submit(() -> {
+                while (writing.get()) {
+                    for (Task task : taskManager.getPrioritizedTasks()) {
+                        Assertions.assertNotNull(task.getStartTime());
+                    }
+                    taskManager.getAllTasks();
+                    taskManager.getHistory();
+                    for (Task epic : taskManager.getEpics()) {
+                        taskManager.getSubTasksByEpicId(epic.getTaskId());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(THREADS * TASKS_PER_THREAD, taskManager.getTasks().size());
+        Assertions.assertEquals(THREADS * TASKS_PER_THREAD, taskManager.getSubTasks().size());
+        Assertions.assertEquals(THREADS * TASKS_PER_THREAD + THREADS, taskManager.getPrioritizedTasks().size());
+        Assertions.assertEquals(THREADS * TASKS_PER_THREAD, taskManager.getHistory().size());
+    }
+
+    @Test
+    void shouldAcceptOnlyOneOfOverlappingTasksAddedInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger added = new AtomicInteger();
+        List<Callable<Void>> calls = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            calls.add(() -> {
+                try {
+                    taskManager.addTask(new Task("Task", "", START, Duration.ofHours(1)));
+                    added.incrementAndGet();
+                } catch (TaskIsOverlapException ignored) {
+                    // expected for all threads except one
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(calls)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(1, added.get());
+        Assertions.assertEquals(1, taskManager.getTasks().size());
+    }
+
+    @Test
+    void shouldNotRestoreViewOfTaskRemovedBeforeTheViewReachedHistory() {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Task task = new Task("Task", "", START, Duration.ofHours(1));
+        manager.addTask(task);
+        Task viewed = manager.getTaskById(task.getTaskId());
+
+        // The view of a task found before the removal and recorded after it.
+        manager.removeTaskById(task.getTaskId());
+        manager.addView(null, viewed, System.currentTimeMillis());
+
+        Assertions.assertEquals(List.of(), manager.getHistory());
+    }
+
+    @Test
+    void shouldRecordEveryViewInOrderOfEachThread() throws Exception {
+        HistoryManager historyManager = new ConcurrentHistoryManager(new InMemoryHistoryManager());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> calls = new ArrayList<>();
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            final int offset = thread * TASKS_PER_THREAD;
+            calls.add(() -> {
+                for (int i = 1; i <= TASKS_PER_THREAD; i++) {
+                    historyManager.addTask(new Task("Task", "", TaskStatus.NEW, offset + i, null, null));
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(calls)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Task> history = historyManager.getHistory();
+        Assertions.assertEquals(THREADS * TASKS_PER_THREAD, history.size());
+        int[] lastIds = new int[THREADS];
+        for (Task task : history) {
+            int thread = (task.getTaskId() - 1) / TASKS_PER_THREAD;
+            Assertions.assertTrue(task.getTaskId() > lastIds[thread], "Views of a thread are reordered");
+            lastIds[thread] = task.getTaskId();
+        }
+    }
+}
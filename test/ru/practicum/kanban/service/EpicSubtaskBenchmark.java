@@ -0,0 +1,76 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Measures the subtask operations of InMemoryTaskManager on a board with many epics:
+// adding every subtask, updating every subtask and listing the subtasks of every epic.
+// Not a unit test: run main() manually, optionally passing the number of epics and of subtasks per epic
+// (1000 and 100 by default).
+// The subtasks of an epic are resolved through the manager's epic ID index, so the time per operation
+// depends on the number of subtasks of the epic and not on the size of the board.
+// Every measurement is the median of a few rounds after warm-up, see BenchmarkSupport.
+public class EpicSubtaskBenchmark {
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int epicCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int subTasksPerEpic = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Epic> epics = new ArrayList<>(epicCount);
+        List<SubTask> subTasks = new ArrayList<>(epicCount * subTasksPerEpic);
+        List<SubTask> updatedSubTasks = new ArrayList<>(epicCount * subTasksPerEpic);
+        int taskId = 0;
+        for (int i = 0; i < epicCount; i++) {
+            Epic epic = new Epic("Epic " + i, "", TaskStatus.NEW, ++taskId, null, null);
+            epics.add(epic);
+            for (int j = 0; j < subTasksPerEpic; j++) {
+                LocalDateTime startTime = start.plusHours((long) i * subTasksPerEpic + j);
+                subTasks.add(new SubTask("SubTask " + j, "", TaskStatus.NEW, ++taskId, epic.getTaskId(),
+                        startTime, Duration.ofMinutes(30)));
+                updatedSubTasks.add(new SubTask("SubTask " + j, "", TaskStatus.DONE, taskId, epic.getTaskId(),
+                        startTime, Duration.ofMinutes(45)));
+            }
+        }
+        int subTaskCount = subTasks.size();
+
+        long addNanos = BenchmarkSupport.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, () -> fill(epics, subTasks));
+
+        TaskManager manager = fill(epics, subTasks);
+        long updateNanos = BenchmarkSupport.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, () -> {
+            updatedSubTasks.forEach(manager::update);
+            subTasks.forEach(manager::update);
+        });
+
+        int[] listed = new int[1];
+        long listNanos = BenchmarkSupport.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, () -> {
+            for (Epic epic : epics) {
+                listed[0] += manager.getSubTasksByEpicId(epic.getTaskId()).size();
+            }
+        });
+        if (listed[0] != (WARM_UP_ROUNDS + MEASURED_ROUNDS) * subTaskCount) {
+            throw new IllegalStateException("Unexpected number of listed subtasks: " + listed[0]);
+        }
+
+        System.out.printf("%,d epics x %,d subtasks%n", epicCount, subTasksPerEpic);
+        System.out.printf("add:    %,d ms, %,d subtasks/s%n", addNanos / 1_000_000,
+                subTaskCount * 1_000_000_000L / addNanos);
+        System.out.printf("update: %,d ns/subtask%n", updateNanos / (2L * subTaskCount));
+        System.out.printf("list:   %,d ns/epic%n", listNanos / epicCount);
+    }
+
+    // Adds the epics and their subtasks to a new manager.
+    private static TaskManager fill(List<Epic> epics, List<SubTask> subTasks) {
+        TaskManager manager = new InMemoryTaskManager();
+        epics.forEach(manager::addTask);
+        subTasks.forEach(manager::addTask);
+        return manager;
+    }
+}
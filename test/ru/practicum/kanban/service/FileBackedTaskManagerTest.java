@@ -1,13 +1,19 @@
 package ru.practicum.kanban.service;
 
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
 import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -37,11 +43,6 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     @BeforeEach
     void beforeEach() {
         try {
-            String simulatedInput = "y\n";
-
-            InputStream in = new ByteArrayInputStream(simulatedInput.getBytes());
-            System.setIn(in);
-
             if (Files.notExists(tempDir)) {
                 Files.createDirectory(tempDir);
             }
@@ -90,11 +91,306 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
 
         List<String> test = Arrays.asList("id,type,name,status,description,startTime,duration,epicStartTime,epicDuration,epicId",
                 "1,TASK,Task,NEW,Test task description,2025-01-01T00:00,PT1H",
-                "2,TASK,Task2,NEW,Test task description2,2025-01-02T00:00,PT1H");
+                "2,TASK,Task2,NEW,Test task description2,2025-01-02T00:00,PT1H",
+                "taskCounter,2");
 
         assertEquals(test, Files.readAllLines(tempFilePath));
     }
 
+    @Test
+    void restoreTasksFromJournal() throws IOException {
+        Path file = Files.createTempFile(tempDir, "journal-", ".csv");
+        Path journalFile = file.resolveSibling(file.getFileName() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null);
+        Task task = new Task("Task", "Test task description",
+                LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1));
+        Epic epic = new Epic("Epic", "Test epic description",
+                LocalDateTime.of(2025, 1, 2, 0,0), Duration.ofHours(1));
+        manager.addTask(task);
+        manager.addTask(epic);
+        manager.addTask(new SubTask("SubTask", "Test subtask description", epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 3, 0,0), Duration.ofHours(1)));
+        manager.update(new Task(task.getName(), task.getDescription(), TaskStatus.DONE, task.getTaskId(),
+                task.getStartTime(), task.getDuration()));
+
+        assertEquals(0, Files.size(file), "Mutations should only be appended to the journal");
+        assertEquals(4, Files.readAllLines(journalFile).size());
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null);
+        assertEquals(manager.getAllTasks().size(), restored.getAllTasks().size());
+        assertEquals(TaskStatus.DONE, restored.getTaskById(task.getTaskId()).getTaskStatus());
+        assertEquals(manager.getTaskById(epic.getTaskId()).getEndTime(),
+                restored.getTaskById(epic.getTaskId()).getEndTime());
+
+        restored.close();
+        Assertions.assertTrue(Files.notExists(journalFile), "The journal should be compacted on close");
+        assertEquals(5, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void batchMutationsIntoFewFlushes() throws IOException, InterruptedException {
+        Path file = Files.createTempFile(tempDir, "batch-", ".csv");
+        Files.delete(file);
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.SNAPSHOT, null,
+                Duration.ofMillis(200), 1000);
+        for (int i = 0; i < 50; i++) {
+            manager.addTask(new Task("Task", String.valueOf(i),
+                    LocalDateTime.of(2025, 1, 1, 0,0).plusHours(i), Duration.ofHours(1)));
+        }
+        manager.awaitDurability();
+
+        FlushStats stats = manager.getFlushStats();
+        assertEquals(50, stats.getFlushedMutations());
+        Assertions.assertTrue(stats.getFlushCount() < 50, "Mutations should be flushed in batches: " + stats);
+        assertEquals(52, Files.readAllLines(file).size());
+        manager.close();
+    }
+
+    @Test
+    void persistBatchOnce() throws IOException, InterruptedException {
+        Path file = Files.createTempFile(tempDir, "journal-batch-", ".csv");
+        Path journalFile = file.resolveSibling(file.getFileName() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null);
+        Epic epic = new Epic("Epic", "", LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1));
+        List<Task> batch = List.of(epic,
+                new SubTask("SubTask", "", epic.getTaskId(), LocalDateTime.of(2025, 1, 2, 0,0), Duration.ofHours(1)),
+                new Task("Task", "", LocalDateTime.of(2025, 1, 3, 0,0), Duration.ofHours(1)));
+
+        manager.addTasks(batch);
+        manager.awaitDurability();
+
+        assertEquals(1, manager.getFlushStats().getFlushCount());
+        assertEquals(3, Files.readAllLines(journalFile).size());
+        FileBackedTaskManager restored = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null);
+        assertEquals(manager.getAllTasks().size(), restored.getAllTasks().size());
+        assertEquals(manager.getTaskById(epic.getTaskId()).getEndTime(),
+                restored.getTaskById(epic.getTaskId()).getEndTime());
+        restored.close();
+        manager.close();
+    }
+
+    @Test
+    void serveParallelReadersAndWritersWhenThreadSafe() throws Exception {
+        Path file = Files.createTempFile(tempDir, "concurrent-", ".csv");
+        FileBackedTaskManager manager = (FileBackedTaskManager) Managers.getConcurrent(file, PersistenceMode.JOURNAL,
+                Managers.getDefaultHistory());
+        Assertions.assertTrue(manager.isThreadSafe());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Callable<Void>> calls = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0,0).plusMonths(thread);
+            calls.add(() -> {
+                for (int i = 0; i < 100; i++) {
+                    Task task = new Task("Task", "", start.plusHours(i), Duration.ofHours(1));
+                    manager.addTask(task);
+                    manager.getTaskById(task.getTaskId());
+                    manager.getAllTasks();
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(calls)) {
+            future.get();
+        }
+        executor.shutdown();
+        manager.close();
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null);
+        assertEquals(400, restored.getTasks().size());
+        assertEquals(400, restored.getHistory().size());
+        restored.close();
+    }
+
+    @Test
+    void restoreHistoryWithoutViewingTasks() throws IOException {
+        Path file = Files.createTempFile(tempDir, "history-", ".csv");
+        Path historyFile = file.resolveSibling(file.getFileName() + ".history");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null,
+                Duration.ZERO, 1, SnapshotFormat.CSV, new PartitionedHistoryManager(InMemoryHistoryManager::new, 10));
+        List<Task> tasks = List.of(
+                new Task("Task1", "", LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1)),
+                new Task("Task2", "", LocalDateTime.of(2025, 1, 2, 0,0), Duration.ofHours(1)),
+                new Task("Task3", "", LocalDateTime.of(2025, 1, 3, 0,0), Duration.ofHours(1)));
+        manager.addTasks(tasks);
+        manager.getTaskById(tasks.get(2).getTaskId());
+        manager.getTaskById(tasks.get(0).getTaskId());
+        manager.getTaskById(tasks.get(1).getTaskId(), "client");
+        manager.getTaskById(tasks.get(2).getTaskId(), "client");
+        manager.getTaskById(tasks.get(1).getTaskId(), "client");
+        manager.removeTaskById(tasks.get(0).getTaskId());
+        manager.close();
+
+        // The history file is compacted on close to one record per history entry.
+        assertEquals(List.of("3,client", "2,client", "3"), readHistoryRecordsWithoutTime(historyFile));
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null,
+                Duration.ZERO, 1, SnapshotFormat.CSV, new PartitionedHistoryManager(InMemoryHistoryManager::new, 10));
+        assertEquals(List.of(tasks.get(2)), restored.getHistory());
+        assertEquals(List.of(tasks.get(2), tasks.get(1)), restored.getHistory("client"));
+        // Views are appended, not rewritten.
+        restored.getTaskById(tasks.get(1).getTaskId());
+        restored.update(tasks.get(2));
+        assertEquals(List.of("3,client", "2,client", "3", "2"), readHistoryRecordsWithoutTime(historyFile));
+        restored.close();
+    }
+
+    @Test
+    void dropExpiredViewsWhenRestoringHistory() throws IOException {
+        Path file = Files.createTempFile(tempDir, "history-", ".csv");
+        Path historyFile = file.resolveSibling(file.getFileName() + ".history");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null,
+                Duration.ZERO, 1, SnapshotFormat.CSV, Managers.getPartitionedHistory(10, Duration.ofHours(1), 10));
+        Task task = new Task("Task", "", LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1));
+        manager.addTask(task);
+        manager.close();
+
+        long now = System.currentTimeMillis();
+        long viewedAt = now - Duration.ofMinutes(30).toMillis();
+        Files.write(historyFile, List.of(
+                task.getTaskId() + "," + (now - Duration.ofHours(2).toMillis()),
+                task.getTaskId() + "," + viewedAt + ",client"));
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null,
+                Duration.ZERO, 1, SnapshotFormat.CSV, Managers.getPartitionedHistory(10, Duration.ofHours(1), 10));
+        assertEquals(List.of(), restored.getHistory());
+        assertEquals(List.of(task), restored.getHistory("client"));
+        restored.close();
+        // The view keeps its original time when the history file is compacted.
+        assertEquals(List.of(task.getTaskId() + "," + viewedAt + ",client"), Files.readAllLines(historyFile));
+    }
+
+    @Test
+    void recordViewWithTheTimeOfTheHistoryEntryAndDropViewOfRemovedTask() throws IOException {
+        Path file = Files.createTempFile(tempDir, "history-", ".csv");
+        Path historyFile = file.resolveSibling(file.getFileName() + ".history");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, null,
+                Duration.ZERO, 1, SnapshotFormat.CSV, Managers.getDefaultHistory());
+        Task kept = new Task("Kept", "", LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1));
+        Task removed = new Task("Removed", "", LocalDateTime.of(2025, 1, 2, 0,0), Duration.ofHours(1));
+        manager.addTask(kept);
+        manager.addTask(removed);
+        manager.getTaskById(kept.getTaskId());
+        Task viewed = manager.getTaskById(removed.getTaskId());
+
+        // The view of a task found before the removal and recorded after it.
+        manager.removeTaskById(removed.getTaskId());
+        manager.addView(null, viewed, System.currentTimeMillis());
+
+        assertEquals(List.of(kept), manager.getHistory());
+        long viewedAt = manager.getHistoryManager().getEntries().get(0).viewedAt();
+        List<String> records = Files.readAllLines(historyFile);
+        assertEquals(3, records.size());
+        assertEquals(kept.getTaskId() + "," + viewedAt, records.get(0));
+        assertEquals("-" + removed.getTaskId(), records.get(2));
+        manager.close();
+        assertEquals(List.of(kept.getTaskId() + "," + viewedAt), Files.readAllLines(historyFile));
+    }
+
+    // Strips the view time from the "<task ID>,<view time>[,<client ID>]" records.
+    private static List<String> readHistoryRecordsWithoutTime(Path historyFile) throws IOException {
+        return Files.readAllLines(historyFile).stream()
+                .map(record -> record.replaceFirst(",\\d+", ""))
+                .toList();
+    }
+
+    @Test
+    void restoreTaskCounterFromSnapshot() throws IOException {
+        Task task = new Task("Task", "Test task description",
+                LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1));
+        taskManager.addTask(task);
+        taskManager.removeTaskById(task.getTaskId());
+
+        new FileBackedTaskManager(tempFilePath);
+        Task newTask = new Task("NewTask", "Test task description",
+                LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1));
+
+        assertEquals(task.getTaskId() + 1, newTask.getTaskId(), "Task IDs should not be reused after restart");
+        Assertions.assertTrue(Files.notExists(tempFilePath.resolveSibling(tempFilePath.getFileName() + ".tmp")));
+    }
+
+    @Test
+    void restoreEpicsWithSubtasksFromSnapshot() {
+        Epic epic = new Epic("Epic", "Test epic description", null, null);
+        taskManager.addTask(epic);
+        SubTask subTask = new SubTask("SubTask", "Test subtask description", epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofMinutes(90));
+        SubTask subTask2 = new SubTask("SubTask2", "Test subtask description2", epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 2, 0,0).plusSeconds(30), Duration.ofHours(1));
+        Task task = new Task("Task", "Test task description", null, null);
+        taskManager.addTask(subTask);
+        taskManager.addTask(subTask2);
+        taskManager.addTask(task);
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(tempFilePath);
+        Epic restoredEpic = (Epic) restored.getTaskById(epic.getTaskId());
+
+        assertEquals(List.of(subTask.getTaskId(), subTask2.getTaskId()), restoredEpic.getSubTasksIds());
+        assertEquals(subTask.getStartTime(), restoredEpic.getStartTime());
+        assertEquals(subTask2.getEndTime(), restoredEpic.getEndTime());
+        assertEquals(subTask2.getStartTime(), restored.getTaskById(subTask2.getTaskId()).getStartTime());
+        Assertions.assertNull(restored.getTaskById(task.getTaskId()).getStartTime());
+        assertEquals(taskManager.getPrioritizedTasks(), restored.getPrioritizedTasks());
+    }
+
+    @Test
+    void restoreTasksFromBinarySnapshot() throws IOException {
+        Path file = Files.createTempFile(tempDir, "binary-", ".bin");
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, SnapshotFormat.BINARY);
+        Task task = new Task("Task, with a comma", "Line one\nline two", null, null);
+        Epic epic = new Epic("Epic", "Test epic description", null, null);
+        manager.addTask(task);
+        manager.addTask(epic);
+        SubTask subTask = new SubTask("SubTask", "Test subtask description", epic.getTaskId(),
+                LocalDateTime.of(1960, 1, 1, 0,0, 0, 500), Duration.ofSeconds(90));
+        manager.addTask(subTask);
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(file, SnapshotFormat.BINARY);
+        assertEquals(manager.getAllTasks(), restored.getAllTasks());
+        assertEquals(task.getDescription(), restored.getTaskById(task.getTaskId()).getDescription());
+        assertEquals(subTask.getStartTime(), restored.getTaskById(subTask.getTaskId()).getStartTime());
+        assertEquals(List.of(subTask.getTaskId()), ((Epic) restored.getTaskById(epic.getTaskId())).getSubTasksIds());
+        assertEquals(subTask.getEndTime(), restored.getTaskById(epic.getTaskId()).getEndTime());
+    }
+
+    @Test
+    void setAsideSnapshotThatFailsPartwayThroughLoading() throws IOException {
+        Path file = Files.createTempFile(tempDir, "corrupt-", ".csv");
+        Path corruptFile = file.resolveSibling(file.getFileName() + ".corrupt");
+        List<String> lines = List.of(TaskCsvFormatHandler.getHeader(),
+                "1,TASK,Task1,NEW,,2025-01-01T00:00,PT1H",
+                "2,TASK,Task2,NEW,,2025-01-02T00:00,PT1H",
+                "taskCounter,two");
+        Files.write(file, lines);
+
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        Assertions.assertTrue(manager.exceptionCaught);
+        assertEquals(List.of(), manager.getAllTasks());
+        assertEquals(lines, Files.readAllLines(corruptFile));
+
+        Task task = new Task("Task", "", LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1));
+        manager.addTask(task);
+        assertEquals(1, task.getTaskId());
+        assertEquals(lines, Files.readAllLines(corruptFile));
+    }
+
+    @Test
+    void convertSnapshotBetweenCsvAndBinary() throws IOException {
+        taskManager.addTask(new Task("Task", "Test task description",
+                LocalDateTime.of(2025, 1, 1, 0,0), Duration.ofHours(1)));
+        Epic epic = new Epic("Epic", "Test epic description", null, null);
+        taskManager.addTask(epic);
+        taskManager.addTask(new SubTask("SubTask", "Test subtask description", epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 3, 0,0), Duration.ofHours(1)));
+        Path binaryFile = Files.createTempFile(tempDir, "converted-", ".bin");
+        Path csvFile = Files.createTempFile(tempDir, "converted-", ".csv");
+
+        assertEquals(3, SnapshotConverter.convert(tempFilePath, binaryFile, SnapshotFormat.BINARY));
+        Assertions.assertTrue(Files.size(binaryFile) < Files.size(tempFilePath));
+        SnapshotConverter.convert(binaryFile, csvFile, SnapshotFormat.CSV);
+
+        assertEquals(Files.readAllLines(tempFilePath), Files.readAllLines(csvFile));
+    }
+
     public static void deleteDirectoryRecursively(Path path) throws IOException {
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
             for (Path entry : stream) {
@@ -6,8 +6,13 @@ import org.junit.jupiter.api.Test;
 import ru.practicum.kanban.model.Task;
 import ru.practicum.kanban.model.enums.TaskStatus;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 
 class InMemoryHistoryManagerTest {
@@ -108,4 +113,161 @@ class InMemoryHistoryManagerTest {
         Assertions.assertEquals(1, history.size(),
                 "The returned number of requests doesn't match the expected number.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldEvictTheOldestTasksOverTheCapacity() {
+        MutableClock clock = new MutableClock();
+        HistoryManager historyManager = new InMemoryHistoryManager(3, Duration.ofHours(1), clock);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(new Task("Task", String.valueOf(i), TaskStatus.NEW, i + 1, null, null));
+            historyManager.addTask(tasks.get(i));
+            clock.advance(Duration.ofMinutes(20));
+        }
+
+        Assertions.assertEquals(tasks.subList(2, 5), historyManager.getHistory());
+
+        // Viewing a task again refreshes its age.
+        historyManager.addTask(tasks.get(2));
+        clock.advance(Duration.ofMinutes(30));
+
+        Assertions.assertEquals(List.of(tasks.get(4), tasks.get(2)), historyManager.getHistory());
+    }
+
+    @Test
+    void shouldKeepOrderWhenRemovedSlotsAreReused() {
+        HistoryManager historyManager = new InMemoryHistoryManager();
+        List<Task> expected = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            Task viewed = new Task("Task", String.valueOf(i), TaskStatus.NEW, i, null, null);
+            historyManager.addTask(viewed);
+            expected.add(viewed);
+            if (i % 3 == 0) {
+                historyManager.remove(i - 1);
+                expected.removeIf(t -> t.getTaskId() == viewed.getTaskId() - 1);
+            }
+        }
+        // Move the first task to the tail.
+        historyManager.addTask(expected.get(0));
+        expected.add(expected.remove(0));
+
+        Assertions.assertEquals(expected, historyManager.getHistory());
+
+        historyManager.removeAll();
+        historyManager.addTask(expected.get(0));
+        Assertions.assertEquals(List.of(expected.get(0)), historyManager.getHistory());
+    }
+
+    @Test
+    void shouldRebuildSnapshotOnlyAfterChanges() {
+        HistoryManager historyManager = new InMemoryHistoryManager();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            tasks.add(new Task("Task", String.valueOf(i), TaskStatus.NEW, i, null, null));
+            historyManager.addTask(tasks.get(i - 1));
+        }
+
+        List<Task> snapshot = historyManager.getHistory();
+        Assertions.assertSame(snapshot, historyManager.getHistory());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(0));
+
+        // Viewing the last viewed task again does not change the history.
+        historyManager.addTask(tasks.get(4));
+        Assertions.assertSame(snapshot, historyManager.getHistory());
+
+        historyManager.addTask(tasks.get(0));
+        Assertions.assertEquals(List.of(tasks.get(4), tasks.get(0)), historyManager.getRecentHistory(2));
+        Assertions.assertEquals(tasks.subList(1, 5), snapshot.subList(1, 5));
+        Assertions.assertEquals(List.of(tasks.get(1), tasks.get(2), tasks.get(3), tasks.get(4), tasks.get(0)),
+                historyManager.getHistory());
+        Assertions.assertEquals(historyManager.getHistory(), historyManager.getRecentHistory(10));
+    }
+
+    @Test
+    void shouldKeepSeparateHistoryForEveryClient() {
+        HistoryManager historyManager = new PartitionedHistoryManager(() -> new InMemoryHistoryManager(2, null), 2);
+        Task first = new Task("First", "", TaskStatus.NEW, 1, null, null);
+        Task second = new Task("Second", "", TaskStatus.NEW, 2, null, null);
+        Task third = new Task("Third", "", TaskStatus.NEW, 3, null, null);
+
+        historyManager.addTask("light", first);
+        historyManager.addTask("heavy", first);
+        historyManager.addTask("heavy", second);
+        historyManager.addTask("heavy", third);
+        historyManager.addTask(second);
+
+        Assertions.assertEquals(List.of(first), historyManager.getHistory("light"));
+        Assertions.assertEquals(List.of(second, third), historyManager.getHistory("heavy"));
+        Assertions.assertEquals(List.of(second), historyManager.getHistory());
+
+        historyManager.remove(second.getTaskId());
+        Assertions.assertEquals(List.of(third), historyManager.getHistory("heavy"));
+        Assertions.assertEquals(List.of(), historyManager.getHistory());
+
+        // Only two client partitions are kept: "light" was used least recently.
+        historyManager.addTask("new", third);
+        Assertions.assertEquals(List.of(), historyManager.getHistory("light"));
+    }
+
+    @Test
+    void shouldChangeVersionWhenEntriesExpireOrPartitionIsDropped() {
+        MutableClock clock = new MutableClock();
+        HistoryManager historyManager = new PartitionedHistoryManager(
+                () -> new InMemoryHistoryManager(10, Duration.ofHours(1), clock), 1);
+        Task task = new Task("Task", "", TaskStatus.NEW, 1, null, null);
+        historyManager.addTask(task);
+        historyManager.addTask("first", task);
+
+        long sharedVersion = historyManager.getVersion();
+        long clientVersion = historyManager.getVersion("first");
+        Assertions.assertEquals(sharedVersion, historyManager.getVersion());
+        Assertions.assertNotEquals(sharedVersion, clientVersion);
+
+        clock.advance(Duration.ofMinutes(61));
+        Assertions.assertNotEquals(sharedVersion, historyManager.getVersion());
+
+        historyManager.addTask("second", task);
+        Assertions.assertEquals(0, historyManager.getVersion("first"));
+        historyManager.addTask("first", task);
+        Assertions.assertNotEquals(clientVersion, historyManager.getVersion("first"));
+    }
+
+    @Test
+    void shouldAgeBufferedViewsFromTheTimeTheyWereRecorded() {
+        MutableClock clock = new MutableClock();
+        HistoryManager historyManager = new ConcurrentHistoryManager(
+                new InMemoryHistoryManager(10, Duration.ofHours(1), clock));
+        Task first = new Task("First", "", TaskStatus.NEW, 1, null, null);
+        Task second = new Task("Second", "", TaskStatus.NEW, 2, null, null);
+        historyManager.addTask(first);
+        clock.advance(Duration.ofMinutes(40));
+        historyManager.addTask(second);
+
+        // Both views are still buffered: the first one expires 60 minutes after it was recorded.
+        clock.advance(Duration.ofMinutes(30));
+        Assertions.assertEquals(List.of(second), historyManager.getHistory());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -6,9 +6,14 @@ import ru.practicum.kanban.exceptions.TaskIsOverlapException;
 import ru.practicum.kanban.model.Epic;
 import ru.practicum.kanban.model.SubTask;
 import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+import ru.practicum.kanban.model.enums.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.NoSuchElementException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -124,4 +129,220 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager>{
         });
         assertEquals("The added task Epic overlaps the existing task!", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void removedTaskShouldNotBlockItsTimeSlot() {
+        taskManager.removeTaskById(task.getTaskId());
+        Task newTask = new Task(
+                "NewTask",
+                "",
+                LocalDateTime.of(2025, 1, 1, 0,0),
+                Duration.ofHours(1)
+        );
+
+        taskManager.addTask(newTask);
+
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void getSubTasksByEpicIdShouldReturnOnlyRemainingSubtasksOfTheEpic() {
+        Epic firstEpic = new Epic("FirstEpic", "", LocalDateTime.of(2025, 2, 1, 0,0), Duration.ofHours(1));
+        Epic secondEpic = new Epic("SecondEpic", "", LocalDateTime.of(2025, 3, 1, 0,0), Duration.ofHours(1));
+        taskManager.addTask(firstEpic);
+        taskManager.addTask(secondEpic);
+
+        SubTask firstSubTask = new SubTask("First", "", firstEpic.getTaskId(),
+                LocalDateTime.of(2025, 2, 2, 0,0), Duration.ofHours(1));
+        SubTask secondSubTask = new SubTask("Second", "", firstEpic.getTaskId(),
+                LocalDateTime.of(2025, 2, 3, 0,0), Duration.ofHours(1));
+        SubTask otherSubTask = new SubTask("Other", "", secondEpic.getTaskId(),
+                LocalDateTime.of(2025, 3, 2, 0,0), Duration.ofHours(1));
+        taskManager.addTask(firstSubTask);
+        taskManager.addTask(secondSubTask);
+        taskManager.addTask(otherSubTask);
+        taskManager.removeTaskById(firstSubTask.getTaskId());
+
+        assertEquals(List.of(secondSubTask), taskManager.getSubTasksByEpicId(firstEpic.getTaskId()));
+
+        taskManager.removeTaskById(secondEpic.getTaskId());
+
+        assertEquals(List.of(secondSubTask), taskManager.getSubTasks());
+    }
+
+    @Test
+    void epicTimeShouldFollowItsSubtasks() {
+        Epic epic = new Epic("Epic", "", LocalDateTime.of(2025, 2, 1, 0,0), Duration.ofHours(1));
+        taskManager.addTask(epic);
+        SubTask earlySubTask = new SubTask("Early", "", epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 31, 0,0), Duration.ofHours(2));
+        SubTask lateSubTask = new SubTask("Late", "", epic.getTaskId(),
+                LocalDateTime.of(2025, 2, 3, 0,0), Duration.ofHours(2));
+        taskManager.addTask(earlySubTask);
+        taskManager.addTask(lateSubTask);
+
+        Task storedEpic = taskManager.getTaskById(epic.getTaskId());
+        assertEquals(LocalDateTime.of(2025, 1, 31, 0,0), storedEpic.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 2, 3, 2,0), storedEpic.getEndTime());
+
+        taskManager.removeTaskById(lateSubTask.getTaskId());
+
+        storedEpic = taskManager.getTaskById(epic.getTaskId());
+        assertEquals(LocalDateTime.of(2025, 1, 31, 0,0), storedEpic.getStartTime());
+        assertEquals(LocalDateTime.of(2025, 2, 1, 1,0), storedEpic.getEndTime());
+    }
+
+    @Test
+    void addTasksShouldApplyWholeBatchOrNothing() {
+        Epic epic = new Epic("Epic", "", LocalDateTime.of(2025, 2, 1, 0,0), Duration.ofHours(1));
+        SubTask subTask = new SubTask("SubTask", "", epic.getTaskId(),
+                LocalDateTime.of(2025, 2, 2, 0,0), Duration.ofHours(1));
+        Task overlapping = new Task("Overlapping", "", LocalDateTime.of(2025, 2, 1, 0,30), Duration.ofHours(1));
+        long version = taskManager.getVersion();
+
+        List<BatchResult> results = taskManager.addTasks(List.of(epic, subTask, overlapping));
+
+        assertEquals(List.of(BatchResult.Status.NOT_APPLIED, BatchResult.Status.NOT_APPLIED,
+                BatchResult.Status.REJECTED), results.stream().map(BatchResult::status).toList());
+        assertEquals("The task Overlapping overlaps the existing task!", results.get(2).message());
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals(version, taskManager.getVersion());
+
+        // The batch moves the existing task, so its old time slot is free for the new one.
+        Task movedTask = new Task(task.getName(), task.getDescription(), task.getTaskStatus(), task.getTaskId(),
+                LocalDateTime.of(2025, 3, 1, 0,0), Duration.ofHours(1));
+        Task newTask = new Task("NewTask", "", task.getStartTime(), task.getDuration());
+        results = taskManager.addTasks(List.of(epic, subTask, newTask, movedTask));
+
+        assertEquals(List.of(BatchResult.Status.ADDED, BatchResult.Status.ADDED, BatchResult.Status.ADDED,
+                BatchResult.Status.UPDATED), results.stream().map(BatchResult::status).toList());
+        assertEquals(List.of(subTask), taskManager.getSubTasksByEpicId(epic.getTaskId()));
+        assertEquals(LocalDateTime.of(2025, 2, 2, 1,0), taskManager.getTaskById(epic.getTaskId()).getEndTime());
+        assertEquals(3, taskManager.getPrioritizedTasks().size());
+        assertEquals(version + 1, taskManager.getVersion());
+    }
+
+    @Test
+    void updateAllShouldRejectMissingTasks() {
+        Task missingTask = new Task("Missing", "", null, null);
+
+        List<BatchResult> results = taskManager.updateAll(List.of(task, missingTask));
+
+        assertEquals(BatchResult.Status.NOT_APPLIED, results.get(0).status());
+        assertEquals(BatchResult.Status.REJECTED, results.get(1).status());
+        assertEquals(List.of(task), taskManager.getAllTasks());
+    }
+
+    @Test
+    void removeIfShouldRemoveMatchingTasksAndUpdateEpics() {
+        Epic epic = new Epic("Epic", "", LocalDateTime.of(2025, 2, 1, 0,0), Duration.ofHours(1));
+        Epic doneEpic = new Epic("DoneEpic", "", TaskStatus.DONE, 1000, new ArrayList<>(), null, null, null, null);
+        taskManager.addTask(epic);
+        taskManager.addTask(doneEpic);
+        SubTask doneSubTask = new SubTask("Done", "", TaskStatus.DONE, 1001, epic.getTaskId(),
+                LocalDateTime.of(2025, 2, 3, 0,0), Duration.ofHours(1));
+        SubTask newSubTask = new SubTask("New", "", epic.getTaskId(),
+                LocalDateTime.of(2025, 2, 2, 0,0), Duration.ofHours(1));
+        SubTask subTaskOfDoneEpic = new SubTask("OfDoneEpic", "", doneEpic.getTaskId(), null, null);
+        taskManager.addTask(doneSubTask);
+        taskManager.addTask(newSubTask);
+        taskManager.addTask(subTaskOfDoneEpic);
+        taskManager.getTaskById(doneSubTask.getTaskId());
+        long version = taskManager.getVersion();
+
+        List<Integer> removedIds = taskManager.removeIf(new TaskFilter(null, Set.of(TaskStatus.DONE), null, null, null));
+
+        assertEquals(List.of(subTaskOfDoneEpic.getTaskId(), doneEpic.getTaskId(), doneSubTask.getTaskId()),
+                removedIds);
+        assertEquals(List.of(newSubTask), taskManager.getSubTasks());
+        assertEquals(List.of(newSubTask.getTaskId()),
+                ((Epic) taskManager.getEpics().getFirst()).getSubTasksIds());
+        assertEquals(LocalDateTime.of(2025, 2, 2, 1,0), taskManager.getEpics().getFirst().getEndTime());
+        assertEquals(List.of(), taskManager.getHistory());
+        assertEquals(version + 1, taskManager.getVersion());
+
+        removedIds = taskManager.removeIf(new TaskFilter(Set.of(TaskType.TASK), null, null, null,
+                Set.of(task.getTaskId(), epic.getTaskId())));
+
+        assertEquals(List.of(task.getTaskId()), removedIds);
+        assertEquals(2, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void queryShouldFollowUpdatesOfTheIndexedFields() {
+        Epic epic = new Epic("Epic", "", LocalDateTime.of(2025, 2, 1, 0,0), Duration.ofHours(1));
+        taskManager.addTask(epic);
+        SubTask subTask = new SubTask("SubTask", "", epic.getTaskId(),
+                LocalDateTime.of(2025, 1, 20, 0,0), Duration.ofHours(1));
+        taskManager.addTask(subTask);
+        taskManager.update(new Task(task.getName(), task.getDescription(), TaskStatus.IN_PROGRESS, task.getTaskId(),
+                LocalDateTime.of(2025, 1, 10, 0,0), task.getDuration()));
+        TaskFilter inProgressInJanuary = new TaskFilter(null, Set.of(TaskStatus.IN_PROGRESS),
+                LocalDateTime.of(2025, 1, 1, 0,0), LocalDateTime.of(2025, 2, 1, 0,0), null);
+
+        assertEquals(List.of(task.getTaskId()), taskManager.query(inProgressInJanuary).stream()
+                .map(Task::getTaskId).toList());
+        // The epic starts with its earliest subtask.
+        assertEquals(List.of(epic.getTaskId(), subTask.getTaskId()), taskManager.query(new TaskFilter(null, null,
+                LocalDateTime.of(2025, 1, 15, 0,0), null, null)).stream().map(Task::getTaskId).toList());
+        assertEquals(List.of(subTask), taskManager.query(new TaskFilter(Set.of(TaskType.SUBTASK),
+                Set.of(TaskStatus.NEW), null, null, null, epic.getTaskId())));
+
+        taskManager.removeTaskById(task.getTaskId());
+
+        assertEquals(List.of(), taskManager.query(inProgressInJanuary));
+        assertEquals(List.of(), taskManager.getHistory());
+    }
+
+    @Test
+    void epicShouldNotChangeAfterItIsHandedOut() {
+        Epic epic = new Epic("Epic", "", LocalDateTime.of(2025, 2, 1, 0,0), Duration.ofHours(1));
+        taskManager.addTask(epic);
+        Epic storedEpic = (Epic) taskManager.getTaskById(epic.getTaskId());
+        List<SubTask> subTasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            subTasks.add(new SubTask("SubTask", String.valueOf(i), epic.getTaskId(), null, null));
+            taskManager.addTask(subTasks.get(i));
+        }
+        taskManager.removeTaskById(subTasks.get(1).getTaskId());
+
+        assertEquals(List.of(), storedEpic.getSubTasksIds());
+        Epic currentEpic = (Epic) taskManager.getTaskById(epic.getTaskId());
+        List<Integer> subTaskIds = currentEpic.getSubTasksIds();
+        assertEquals(List.of(subTasks.get(0).getTaskId(), subTasks.get(2).getTaskId()), subTaskIds);
+        assertThrows(UnsupportedOperationException.class, () -> subTaskIds.add(0));
+
+        taskManager.addTask(new SubTask("SubTask", "3", epic.getTaskId(), null, null));
+        assertEquals(subTaskIds, currentEpic.getSubTasksIds());
+        assertEquals(3, ((Epic) taskManager.getTaskById(epic.getTaskId())).getSubTasksIds().size());
+    }
+
+    @Test
+    void updateShouldMoveSubtaskToAnotherEpic() {
+        Epic firstEpic = new Epic("FirstEpic", "", LocalDateTime.of(2025, 2, 1, 0,0), Duration.ofHours(1));
+        Epic secondEpic = new Epic("SecondEpic", "", LocalDateTime.of(2025, 3, 1, 0,0), Duration.ofHours(1));
+        taskManager.addTask(firstEpic);
+        taskManager.addTask(secondEpic);
+        SubTask subTask = new SubTask("SubTask", "", firstEpic.getTaskId(),
+                LocalDateTime.of(2025, 2, 5, 0,0), Duration.ofHours(1));
+        SubTask doneSubTask = new SubTask("Done", "", TaskStatus.DONE, 1000, firstEpic.getTaskId(), null, null);
+        taskManager.addTask(subTask);
+        taskManager.addTask(doneSubTask);
+
+        SubTask movedSubTask = new SubTask(subTask.getName(), subTask.getDescription(), TaskStatus.IN_PROGRESS,
+                subTask.getTaskId(), secondEpic.getTaskId(), subTask.getStartTime(), subTask.getDuration());
+        taskManager.update(movedSubTask);
+
+        assertEquals(List.of(doneSubTask), taskManager.getSubTasksByEpicId(firstEpic.getTaskId()));
+        assertEquals(List.of(movedSubTask), taskManager.getSubTasksByEpicId(secondEpic.getTaskId()));
+        Epic first = (Epic) taskManager.getTaskById(firstEpic.getTaskId());
+        Epic second = (Epic) taskManager.getTaskById(secondEpic.getTaskId());
+        assertEquals(List.of(doneSubTask.getTaskId()), first.getSubTasksIds());
+        assertEquals(TaskStatus.DONE, first.getTaskStatus());
+        assertEquals(LocalDateTime.of(2025, 2, 1, 1,0), first.getEndTime());
+        assertEquals(LocalDateTime.of(2025, 2, 5, 0,0), second.getStartTime());
+
+        taskManager.removeTaskById(firstEpic.getTaskId());
+        assertEquals(List.of(movedSubTask), taskManager.getSubTasks());
+    }
+}
@@ -10,6 +10,9 @@ class ManagersTest {
         Assertions.assertNotNull(Managers.getDefault(),
                 "getDefault() should not return a null value.");
 
+        Assertions.assertNotNull(Managers.getConcurrent(),
+                "getConcurrent() should not return a null value.");
+
         Assertions.assertNotNull(Managers.getDefaultHistory(),
                 "getDefaultHistory() should not return a null value.");
     }
@@ -0,0 +1,95 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Compares save time, load time and file size of the CSV and the binary snapshot formats.
+// Not a unit test: run main() manually, optionally passing the number of tasks.
+// Every measurement is the median of several rounds after warm-up, see BenchmarkSupport.
+public class SnapshotFormatBenchmark {
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        fill(manager, taskCount);
+        List<Task> tasks = manager.getAllTasks();
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            Path file = directory.resolve("snapshot." + format.name().toLowerCase());
+            long saveNanos = BenchmarkSupport.measure(() -> save(file, format, tasks));
+            long loadNanos = BenchmarkSupport.measure(() -> new FileBackedTaskManager(file, format));
+            System.out.printf("%-6s %,d tasks, size: %,d bytes, save: %d ms, load: %d ms%n", format, tasks.size(),
+                    Files.size(file), TimeUnit.NANOSECONDS.toMillis(saveNanos),
+                    TimeUnit.NANOSECONDS.toMillis(loadNanos));
+        }
+
+        // Raw decoding without restoring the tasks into a manager.
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            Path file = directory.resolve("snapshot." + format.name().toLowerCase());
+            long readNanos = BenchmarkSupport.measure(() -> read(file, format));
+            System.out.printf("%-6s decode only: %d ms%n", format, TimeUnit.NANOSECONDS.toMillis(readNanos));
+        }
+        FileBackedTaskManagerTest.deleteDirectoryRecursively(directory);
+    }
+
+    private static void fill(TaskManager manager, int taskCount) {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < taskCount / 2; i++) {
+            manager.addTask(new Task("Task " + i, "Description of task " + i, start.plusHours(i),
+                    Duration.ofMinutes(45)));
+        }
+        LocalDateTime epicStart = start.minusYears(50);
+        for (int i = 0; i < taskCount / 20; i++) {
+            Epic epic = new Epic("Epic " + i, "Description of epic " + i, null, null);
+            manager.addTask(epic);
+            for (int j = 0; j < 9; j++) {
+                manager.addTask(new SubTask("SubTask " + j, "Description of subtask " + j, epic.getTaskId(),
+                        epicStart.plusHours(i * 10L + j), Duration.ofMinutes(30)));
+            }
+        }
+    }
+
+    private static void save(Path file, SnapshotFormat format, List<Task> tasks) {
+        try {
+            if (format == SnapshotFormat.BINARY) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                    TaskBinaryFormatHandler.write(out, tasks, tasks.size());
+                }
+            } else {
+                try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                    TaskCsvFormatHandler.write(writer, tasks, tasks.size());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void read(Path file, SnapshotFormat format) {
+        try {
+            if (format == SnapshotFormat.BINARY) {
+                TaskBinaryFormatHandler.read(file, task -> { });
+            } else {
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    TaskCsvFormatHandler.read(reader, task -> { });
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.kanban.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.practicum.kanban.exceptions.ManagerLoadException;
+import ru.practicum.kanban.model.Epic;
+import ru.practicum.kanban.model.SubTask;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class TaskBinaryFormatHandlerTest {
+
+    @Test
+    void shouldDecodeTasksFromDirectBuffer() throws IOException {
+        List<Task> tasks = List.of(
+                new Task("Задача", "x".repeat(1000), TaskStatus.IN_PROGRESS, 1,
+                        LocalDateTime.of(2025, 1, 1, 0, 0), Duration.ofHours(1)),
+                new Epic("Epic", null, TaskStatus.NEW, 2, new ArrayList<>(), null, null,
+                        LocalDateTime.of(2025, 1, 2, 0, 0), Duration.ofMinutes(5)),
+                new SubTask("SubTask", "", TaskStatus.DONE, 300, 2,
+                        LocalDateTime.of(2025, 1, 3, 0, 0), Duration.ofSeconds(-1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskBinaryFormatHandler.write(out, tasks, 300);
+        // A direct buffer is decoded the same way as a memory-mapped snapshot.
+        ByteBuffer buffer = ByteBuffer.allocateDirect(out.size()).put(out.toByteArray()).flip();
+
+        List<Task> restored = new ArrayList<>();
+        int taskCounter = TaskBinaryFormatHandler.read(buffer, restored::add);
+
+        Assertions.assertEquals(300, taskCounter);
+        Assertions.assertEquals(tasks.size(), restored.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Assertions.assertEquals(tasks.get(i).getDataForFileSaving(), restored.get(i).getDataForFileSaving());
+        }
+        Assertions.assertNull(restored.get(1).getDescription());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void shouldNotPassAnyTaskOfCorruptSnapshot() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            tasks.add(new Task("Task", String.valueOf(i), TaskStatus.NEW, i, null, null));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskBinaryFormatHandler.write(out, tasks, 5);
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        TaskBinaryFormatHandler.write(head, tasks.subList(0, 2), 5);
+        byte[] bytes = out.toByteArray();
+        // The type tag of the third task: the snapshot of the first two tasks ends with the checksum.
+        bytes[head.size() - Integer.BYTES] = 9;
+
+        List<Task> restored = new ArrayList<>();
+        Assertions.assertThrows(ManagerLoadException.class,
+                () -> TaskBinaryFormatHandler.read(ByteBuffer.wrap(bytes), restored::add));
+        Assertions.assertEquals(List.of(), restored);
+    }
+
+    @Test
+    void shouldReadSnapshotWithoutChecksumOfVersion1() throws IOException {
+        List<Task> tasks = List.of(new Task("Task", "", TaskStatus.NEW, 1, null, null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskBinaryFormatHandler.write(out, tasks, 1);
+        byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size() - Integer.BYTES);
+        // The version follows the 4-byte signature.
+        bytes[4] = 1;
+
+        List<Task> restored = new ArrayList<>();
+        Assertions.assertEquals(1, TaskBinaryFormatHandler.read(ByteBuffer.wrap(bytes), restored::add));
+        Assertions.assertEquals(tasks.get(0).getDataForFileSaving(), restored.get(0).getDataForFileSaving());
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.kanban.service;
+
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Measures the overlap detection at a growing number of timed tasks: adding the tasks to InMemoryTaskManager,
+// which checks every task for an overlap, and probing TimeIntervalIndex directly.
+// Not a unit test: run main() manually, optionally passing the task counts.
+// The time per task and per probe should grow as log N; a scan of all tasks would make it grow as N.
+// Every measurement is the median of a few rounds after warm-up, see BenchmarkSupport.
+public class TimeIntervalIndexBenchmark {
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int PROBES = 100_000;
+
+    public static void main(String[] args) {
+        int[] taskCounts = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1_000, 10_000, 100_000, 1_000_000};
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int taskCount : taskCounts) {
+            List<Task> tasks = new ArrayList<>(taskCount);
+            for (int i = 0; i < taskCount; i++) {
+                tasks.add(new Task("Task " + i, "", TaskStatus.NEW, i + 1, start.plusHours(i),
+                        Duration.ofMinutes(45)));
+            }
+            long addNanos = BenchmarkSupport.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, () -> {
+                TaskManager manager = new InMemoryTaskManager();
+                tasks.forEach(manager::addTask);
+            });
+
+            TimeIntervalIndex index = new TimeIntervalIndex();
+            tasks.forEach(index::add);
+            // Every probe falls into a gap between two tasks, so it never stops at the first overlap.
+            LocalDateTime[] probes = new LocalDateTime[PROBES];
+            for (int i = 0; i < PROBES; i++) {
+                probes[i] = start.plusHours((long) i * 7919 % taskCount).plusMinutes(50);
+            }
+            int[] overlaps = new int[1];
+            long probeNanos = BenchmarkSupport.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, () -> {
+                for (LocalDateTime probe : probes) {
+                    if (index.overlaps(probe, probe.plusMinutes(5), 0)) {
+                        overlaps[0]++;
+                    }
+                }
+            });
+            if (overlaps[0] != 0) {
+                throw new IllegalStateException("Unexpected overlaps: " + overlaps[0]);
+            }
+            System.out.printf("%,9d tasks: add %,6d ns/task, overlap check %,5d ns/probe%n", taskCount,
+                    addNanos / taskCount, probeNanos / PROBES);
+        }
+    }
+}
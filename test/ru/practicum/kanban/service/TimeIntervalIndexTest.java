@@ -0,0 +1,85 @@
+package ru.practicum.kanban.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.kanban.model.Task;
+import ru.practicum.kanban.model.enums.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class TimeIntervalIndexTest {
+    static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    TimeIntervalIndex index;
+
+    @BeforeEach
+    void beforeEach() {
+        index = new TimeIntervalIndex();
+    }
+
+    private Task createTask(int taskId, int startHour, int hours) {
+        return new Task("Task", "", TaskStatus.NEW, taskId, START.plusHours(startHour), Duration.ofHours(hours));
+    }
+
+    @Test
+    void shouldDetectOverlapWithLongEarlierInterval() {
+        index.add(createTask(1, 0, 100));
+        index.add(createTask(2, 10, 1));
+        index.add(createTask(3, 20, 1));
+
+        Assertions.assertTrue(index.overlaps(START.plusHours(50), START.plusHours(51), 0));
+        Assertions.assertFalse(index.overlaps(START.plusHours(100), START.plusHours(101), 0));
+    }
+
+    @Test
+    void shouldIgnoreIntervalOfTheSameTask() {
+        index.add(createTask(1, 0, 2));
+
+        Assertions.assertFalse(index.overlaps(START.plusHours(1), START.plusHours(3), 1));
+        Assertions.assertTrue(index.overlaps(START.plusHours(1), START.plusHours(3), 2));
+    }
+
+    @Test
+    void shouldReplaceIntervalWhenTaskIsAddedAgain() {
+        index.add(createTask(1, 0, 1));
+        index.add(createTask(1, 5, 1));
+
+        Assertions.assertEquals(1, index.size());
+        Assertions.assertFalse(index.overlaps(START, START.plusHours(1), 0));
+        Assertions.assertTrue(index.contains(1, START.plusHours(5), START.plusHours(6)));
+    }
+
+    @Test
+    void shouldMatchLinearScanOnRandomIntervals() {
+        Random random = new Random(42);
+        Map<Integer, Task> added = new HashMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            int taskId = random.nextInt(300);
+            if (random.nextInt(4) == 0) {
+                index.remove(taskId);
+                added.remove(taskId);
+            } else {
+                Task task = createTask(taskId, random.nextInt(1000), random.nextInt(20) + 1);
+                index.add(task);
+                added.put(taskId, task);
+            }
+
+            LocalDateTime start = START.plusHours(random.nextInt(1000));
+            LocalDateTime end = start.plusHours(random.nextInt(20) + 1);
+            int ignoredTaskId = random.nextInt(300);
+            boolean expected = added.values().stream()
+                    .anyMatch(task -> task.getTaskId() != ignoredTaskId
+                            && start.isBefore(task.getEndTime())
+                            && end.isAfter(task.getStartTime()));
+
+            Assertions.assertEquals(expected, index.overlaps(start, end, ignoredTaskId));
+        }
+        Assertions.assertEquals(added.size(), index.size());
+    }
+}